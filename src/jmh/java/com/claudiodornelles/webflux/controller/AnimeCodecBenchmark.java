@@ -0,0 +1,124 @@
+package com.claudiodornelles.webflux.controller;
+
+import com.claudiodornelles.webflux.config.BinaryCodecConfiguration;
+import com.claudiodornelles.webflux.domain.Anime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.AbstractJackson2Decoder;
+import org.springframework.http.codec.json.AbstractJackson2Encoder;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnimeCodecBenchmark {
+
+    private static final ResolvableType ANIME_TYPE = ResolvableType.forClass(Anime.class);
+    private static final ResolvableType ANIME_LIST_TYPE = ResolvableType.forClassWithGenerics(List.class, Anime.class);
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"100", "10000"})
+    private int listSize;
+
+    private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+    private AbstractJackson2Encoder encoder;
+    private AbstractJackson2Decoder decoder;
+    private MediaType mediaType;
+    private Anime anime;
+    private List<Anime> animes;
+    private byte[] encodedAnime;
+    private byte[] encodedAnimes;
+
+    @Setup
+    public void setUp() {
+        switch (format) {
+            case "cbor":
+                var cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+                encoder = new Jackson2CborEncoder(cborMapper, MediaType.APPLICATION_CBOR);
+                decoder = new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR);
+                mediaType = MediaType.APPLICATION_CBOR;
+                break;
+            case "smile":
+                encoder = new Jackson2SmileEncoder();
+                decoder = new Jackson2SmileDecoder();
+                mediaType = MediaType.valueOf(BinaryCodecConfiguration.APPLICATION_SMILE_VALUE);
+                break;
+            default:
+                var objectMapper = Jackson2ObjectMapperBuilder.json().build();
+                encoder = new Jackson2JsonEncoder(objectMapper);
+                decoder = new Jackson2JsonDecoder(objectMapper);
+                mediaType = MediaType.APPLICATION_JSON;
+        }
+        decoder.setMaxInMemorySize(-1);
+
+        anime = Anime.builder()
+                .id(UUID.randomUUID())
+                .name("Tensei Shitara Slime Datta Ken")
+                .build();
+        animes = IntStream.range(0, listSize)
+                .mapToObj(i -> anime.withId(UUID.randomUUID()))
+                .collect(Collectors.toList());
+
+        encodedAnime = toBytes(encodeAnime());
+        encodedAnimes = toBytes(encodeAnimeList());
+        System.out.printf("%n%s payload: 1 anime = %d bytes, %d animes = %d bytes%n",
+                format, encodedAnime.length, listSize, encodedAnimes.length);
+    }
+
+    @Benchmark
+    public DataBuffer encodeAnime() {
+        return encoder.encodeValue(anime, bufferFactory, ANIME_TYPE, mediaType, null);
+    }
+
+    @Benchmark
+    public DataBuffer encodeAnimeList() {
+        return encoder.encodeValue(animes, bufferFactory, ANIME_LIST_TYPE, mediaType, null);
+    }
+
+    @Benchmark
+    public Object decodeAnime() {
+        return decoder.decode(bufferFactory.wrap(encodedAnime), ANIME_TYPE, mediaType, null);
+    }
+
+    @Benchmark
+    public Object decodeAnimeList() {
+        return decoder.decode(bufferFactory.wrap(encodedAnimes), ANIME_LIST_TYPE, mediaType, null);
+    }
+
+    private static byte[] toBytes(DataBuffer buffer) {
+        var bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        return bytes;
+    }
+}
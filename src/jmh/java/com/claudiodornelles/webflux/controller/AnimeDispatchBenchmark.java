@@ -0,0 +1,135 @@
+package com.claudiodornelles.webflux.controller;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.domain.TimeOrderedIdGenerator;
+import com.claudiodornelles.webflux.repository.InMemoryAnimeRepository;
+import com.claudiodornelles.webflux.repository.PassThroughTransactionalOperator;
+import com.claudiodornelles.webflux.service.AnimeBatchLoader;
+import com.claudiodornelles.webflux.service.AnimeBatchWriter;
+import com.claudiodornelles.webflux.service.AnimeCache;
+import com.claudiodornelles.webflux.service.AnimeChangeStream;
+import com.claudiodornelles.webflux.service.AnimeJsonCache;
+import com.claudiodornelles.webflux.service.AnimeService;
+import com.claudiodornelles.webflux.service.AnimeWriteBehindBuffer;
+import com.claudiodornelles.webflux.service.EntityValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import javax.validation.Validation;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the same {@link AnimeService} through either dispatch model over loopback HTTP, so requests/sec and the
+ * p0.99 of the sampled latency can be compared side by side for {@code anime.web.dispatch}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class AnimeDispatchBenchmark {
+
+    private static final String NAME = "Tensei Shitara Slime Datta Ken";
+
+    @Param({"annotated", "functional"})
+    private String dispatch;
+
+    private AnnotationConfigApplicationContext context;
+    private DisposableServer server;
+    private HttpClient client;
+    private String findByIdUri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources()
+                .addFirst(new MapPropertySource("dispatch", Map.of("anime.web.dispatch", dispatch)));
+        context.register(DispatchConfiguration.class, AnimeController.class, AnimeHandler.class, AnimeRouter.class);
+        context.refresh();
+
+        var service = context.getBean(AnimeService.class);
+        for (int i = 0; i < 100; i++) {
+            service.save(Anime.builder().name(NAME + " " + i).build()).block();
+        }
+        UUID id = service.findPage(null, 1).block().getContent().get(0).getId();
+        findByIdUri = "/animes/" + id;
+
+        var httpHandler = WebHttpHandlerBuilder.applicationContext(context).build();
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        client = HttpClient.create()
+                .baseUrl("http://127.0.0.1:" + server.port());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.disposeNow();
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] findById() {
+        return get(findByIdUri);
+    }
+
+    @Benchmark
+    public byte[] findPage() {
+        return get("/animes?limit=20");
+    }
+
+    private byte[] get(String uri) {
+        return client.headers(headers -> headers.set("Accept", "application/json"))
+                .get()
+                .uri(uri)
+                .responseSingle((response, body) -> body.asByteArray())
+                .block();
+    }
+
+    @EnableWebFlux
+    static class DispatchConfiguration {
+
+        @Bean
+        AnimeService animeService() {
+            var repository = new InMemoryAnimeRepository();
+            var properties = new AnimeProperties();
+            var batchWriter = new AnimeBatchWriter(repository, new PassThroughTransactionalOperator(), properties,
+                    new TimeOrderedIdGenerator());
+            return new AnimeService(repository, properties, new AnimeCache(properties),
+                    new AnimeJsonCache(properties, Jackson2ObjectMapperBuilder.json().build()), batchWriter,
+                    new AnimeBatchLoader(repository, properties),
+                    new EntityValidator(Validation.buildDefaultValidatorFactory().getValidator()),
+                    new AnimeWriteBehindBuffer(batchWriter, new TimeOrderedIdGenerator(), properties),
+                    new AnimeChangeStream(properties));
+        }
+    }
+}
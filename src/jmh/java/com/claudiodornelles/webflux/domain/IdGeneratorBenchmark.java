@@ -0,0 +1,43 @@
+package com.claudiodornelles.webflux.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.IdGenerator;
+import org.springframework.util.JdkIdGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures id generation under contention; {@link JdkIdGenerator} is {@code UUID.randomUUID()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private final IdGenerator timeOrdered = new TimeOrderedIdGenerator();
+    private final IdGenerator random = new JdkIdGenerator();
+
+    @Benchmark
+    public UUID timeOrdered() {
+        return timeOrdered.generateId();
+    }
+
+    @Benchmark
+    public UUID random() {
+        return random.generateId();
+    }
+}
@@ -0,0 +1,84 @@
+package com.claudiodornelles.webflux.exception;
+
+import com.claudiodornelles.webflux.SpringWebfluxEssentialsApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures 404 throughput over loopback HTTP, both for an unknown anime and for a path no handler matches.
+ * {@code preEncoded=false} serializes the error-attributes map as the error path did before pre-encoded error
+ * bodies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class NotFoundBenchmark {
+
+    @Param({"false", "true"})
+    private boolean preEncoded;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String unknownAnimeUri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SpringWebfluxEssentialsApplication.class)
+                .profiles("in-memory")
+                .properties("server.port=0",
+                        "anime.in-memory.snapshot-path=",
+                        "anime.batch-loader.enabled=false",
+                        "anime.errors.pre-encoded=" + preEncoded)
+                .run();
+        var port = ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+        client = HttpClient.create()
+                .baseUrl("http://127.0.0.1:" + port)
+                .headers(headers -> headers.set("Accept", "application/json"));
+        unknownAnimeUri = "/animes/" + UUID.randomUUID();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] unknownAnime() {
+        return get(unknownAnimeUri);
+    }
+
+    @Benchmark
+    public byte[] unknownPath() {
+        return get("/wp-login.php");
+    }
+
+    private byte[] get(String uri) {
+        return client.get()
+                .uri(uri)
+                .responseSingle((response, body) -> body.asByteArray())
+                .block();
+    }
+}
@@ -0,0 +1,294 @@
+package com.claudiodornelles.webflux.load;
+
+import com.claudiodornelles.webflux.SpringWebfluxEssentialsApplication;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.service.AnimeService;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Starts the application under the {@code in-memory} profile, without snapshots, and drives a weighted mix of reads and writes at a fixed number
+ * of concurrent closed-loop workers, recording per-endpoint latency in HDR histograms.
+ *
+ * <p>Every {@code load.*} system property (or {@code -Pload.*} Gradle property) overrides a default: concurrency,
+ * warmup, duration, seed, mix, max-p99 (optionally per endpoint as {@code load.max-p99.<endpoint>}), max-error-rate
+ * and min-throughput. The run exits with status 1 when any threshold is breached.
+ */
+public class AnimeLoadTest {
+
+    private static final String NAME = "Load Test Anime ";
+
+    enum Operation {
+        FIND_BY_ID("findById"),
+        FIND_PAGE("findPage"),
+        SEARCH("search"),
+        SAVE("save"),
+        UPDATE("update");
+
+        private final String endpoint;
+
+        Operation(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        static Operation of(String endpoint) {
+            for (Operation operation : values()) {
+                if (operation.endpoint.equals(endpoint)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("unknown endpoint in load.mix: " + endpoint);
+        }
+    }
+
+    private final Settings settings;
+    private final List<UUID> ids;
+    private final HttpClient readClient;
+    private final HttpClient writeClient;
+
+    AnimeLoadTest(Settings settings, int port, List<UUID> ids) {
+        this.settings = settings;
+        this.ids = ids;
+        var provider = ConnectionProvider.builder("anime-load-test")
+                .maxConnections(settings.concurrency)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.readClient = HttpClient.create(provider)
+                .baseUrl("http://127.0.0.1:" + port)
+                .headers(headers -> headers.set(HttpHeaderNames.ACCEPT, "application/json"));
+        this.writeClient = readClient
+                .headers(headers -> headers.set(HttpHeaderNames.CONTENT_TYPE, "application/json"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        var settings = Settings.fromSystemProperties();
+        var context = new SpringApplicationBuilder(SpringWebfluxEssentialsApplication.class)
+                .profiles("in-memory")
+                .properties("server.port=0", "anime.in-memory.snapshot-path=")
+                .run(args);
+        List<String> breaches;
+        try {
+            var port = ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+            var ids = context.getBean(AnimeService.class)
+                    .saveAll(IntStream.range(0, settings.seed)
+                            .mapToObj(i -> Anime.builder().name(NAME + i).build())
+                            .collect(Collectors.toList()))
+                    .map(Anime::getId)
+                    .collectList()
+                    .block();
+            var loadTest = new AnimeLoadTest(settings, port, ids);
+
+            System.out.printf("warming up for %s with %d workers%n", settings.warmup, settings.concurrency);
+            loadTest.run(settings.warmup);
+            System.out.printf("measuring for %s with %d workers%n", settings.duration, settings.concurrency);
+            var stats = loadTest.run(settings.duration);
+            breaches = loadTest.report(stats);
+        } finally {
+            context.close();
+        }
+        if (!breaches.isEmpty()) {
+            breaches.forEach(breach -> System.err.println("threshold breached: " + breach));
+        }
+        System.exit(breaches.isEmpty() ? 0 : 1);
+    }
+
+    Map<Operation, EndpointStats> run(Duration duration) {
+        var stats = new EnumMap<Operation, EndpointStats>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new EndpointStats());
+        }
+        var deadline = System.nanoTime() + duration.toNanos();
+        Flux.range(0, settings.concurrency)
+                .flatMap(worker -> Mono.defer(() -> execute(settings.nextOperation(), stats))
+                        .repeat(() -> System.nanoTime() < deadline), settings.concurrency)
+                .blockLast();
+        return stats;
+    }
+
+    private Mono<Void> execute(Operation operation, Map<Operation, EndpointStats> stats) {
+        var start = System.nanoTime();
+        var endpointStats = stats.get(operation);
+        return send(operation)
+                .doOnNext(status -> endpointStats.record(System.nanoTime() - start, status < 400))
+                .onErrorResume(error -> {
+                    endpointStats.record(System.nanoTime() - start, false);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Integer> send(Operation operation) {
+        var random = ThreadLocalRandom.current();
+        switch (operation) {
+            case FIND_BY_ID:
+                return exchange(readClient.get().uri("/animes/" + randomId()));
+            case FIND_PAGE:
+                return exchange(readClient.get().uri("/animes?limit=20"));
+            case SEARCH:
+                return exchange(readClient.get().uri("/animes/search?q=Load%20Test%20Anime%20" + random.nextInt(10)));
+            case SAVE:
+                return exchange(writeClient.post().uri("/animes").send(json(NAME + random.nextInt())));
+            case UPDATE:
+                return exchange(writeClient.put().uri("/animes/" + randomId()).send(json(NAME + random.nextInt())));
+            default:
+                throw new IllegalStateException("unknown operation " + operation);
+        }
+    }
+
+    private static Mono<Integer> exchange(HttpClient.ResponseReceiver<?> request) {
+        return request.responseSingle((response, body) -> body.asByteArray()
+                .map(bytes -> response.status().code())
+                .defaultIfEmpty(response.status().code()));
+    }
+
+    private static ByteBufFlux json(String name) {
+        return ByteBufFlux.fromString(Mono.just("{\"name\":\"" + name + "\"}"));
+    }
+
+    private UUID randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    List<String> report(Map<Operation, EndpointStats> stats) throws IOException {
+        var breaches = new ArrayList<String>();
+        var seconds = settings.duration.toNanos() / 1e9;
+        long total = 0;
+        System.out.printf("%-10s %10s %10s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<Operation, EndpointStats> entry : stats.entrySet()) {
+            var endpoint = entry.getKey().endpoint;
+            var histogram = entry.getValue().latencies;
+            var count = histogram.getTotalCount();
+            if (count == 0) {
+                continue;
+            }
+            total += count;
+            var errors = entry.getValue().errors.sum();
+            var p99 = millis(histogram, 99.0);
+            System.out.printf("%-10s %10d %10.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint, count, count / seconds, errors, millis(histogram, 50.0), millis(histogram, 90.0), p99,
+                    millis(histogram, 99.9), histogram.getMaxValue() / 1e6);
+            writeDistribution(endpoint, histogram);
+
+            var maxP99 = settings.maxP99(endpoint);
+            if (p99 > maxP99.toNanos() / 1e6) {
+                breaches.add(String.format("%s p99 %.2f ms is above %s", endpoint, p99, maxP99));
+            }
+            var errorRate = (double) errors / count;
+            if (errorRate > settings.maxErrorRate) {
+                breaches.add(String.format("%s error rate %.4f is above %s", endpoint, errorRate, settings.maxErrorRate));
+            }
+        }
+        var throughput = total / seconds;
+        System.out.printf("%-10s %10d %10.1f%n", "total", total, throughput);
+        if (throughput < settings.minThroughput) {
+            breaches.add(String.format("throughput %.1f req/s is below %s", throughput, settings.minThroughput));
+        }
+        return breaches;
+    }
+
+    private void writeDistribution(String endpoint, Histogram histogram) throws IOException {
+        if (settings.reportDir == null) {
+            return;
+        }
+        Files.createDirectories(settings.reportDir);
+        try (var out = new PrintStream(Files.newOutputStream(settings.reportDir.resolve(endpoint + ".hgrm")))) {
+            histogram.outputPercentileDistribution(out, 1e6);
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    static final class EndpointStats {
+
+        private final ConcurrentHistogram latencies = new ConcurrentHistogram(3);
+        private final LongAdder errors = new LongAdder();
+
+        void record(long nanos, boolean success) {
+            latencies.recordValue(nanos);
+            if (!success) {
+                errors.increment();
+            }
+        }
+    }
+
+    static final class Settings {
+
+        private int concurrency;
+        private Duration warmup;
+        private Duration duration;
+        private int seed;
+        private Duration maxP99;
+        private double maxErrorRate;
+        private double minThroughput;
+        private Path reportDir;
+        private Operation[] weightedOperations;
+
+        static Settings fromSystemProperties() {
+            var settings = new Settings();
+            settings.concurrency = Integer.parseInt(System.getProperty("load.concurrency", "32"));
+            settings.warmup = DurationStyle.detectAndParse(System.getProperty("load.warmup", "10s"));
+            settings.duration = DurationStyle.detectAndParse(System.getProperty("load.duration", "30s"));
+            settings.seed = Integer.parseInt(System.getProperty("load.seed", "1000"));
+            settings.maxP99 = DurationStyle.detectAndParse(System.getProperty("load.max-p99", "250ms"));
+            settings.maxErrorRate = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+            settings.minThroughput = Double.parseDouble(System.getProperty("load.min-throughput", "0"));
+            var reportDir = System.getProperty("load.report-dir");
+            settings.reportDir = reportDir == null ? null : Path.of(reportDir);
+            settings.weightedOperations = weighted(System.getProperty("load.mix",
+                    "findById=50,findPage=20,search=10,save=10,update=10"));
+            return settings;
+        }
+
+        Duration maxP99(String endpoint) {
+            var value = System.getProperty("load.max-p99." + endpoint);
+            return value == null ? maxP99 : DurationStyle.detectAndParse(value);
+        }
+
+        Operation nextOperation() {
+            return weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+        }
+
+        private static Operation[] weighted(String mix) {
+            var operations = new ArrayList<Operation>();
+            for (String entry : mix.split(",")) {
+                var parts = entry.trim().split("=");
+                var operation = Operation.of(parts[0].trim());
+                var weight = Integer.parseInt(parts[1].trim());
+                for (int i = 0; i < weight; i++) {
+                    operations.add(operation);
+                }
+            }
+            if (operations.isEmpty()) {
+                throw new IllegalArgumentException("load.mix should give at least one endpoint a positive weight");
+            }
+            return operations.toArray(new Operation[0]);
+        }
+    }
+}
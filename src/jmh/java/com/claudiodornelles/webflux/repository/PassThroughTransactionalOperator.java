@@ -0,0 +1,50 @@
+package com.claudiodornelles.webflux.repository;
+
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.reactive.TransactionCallback;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class PassThroughTransactionalOperator implements TransactionalOperator {
+
+    @Override
+    public <T> Flux<T> transactional(Flux<T> flux) {
+        return flux;
+    }
+
+    @Override
+    public <T> Mono<T> transactional(Mono<T> mono) {
+        return mono;
+    }
+
+    @Override
+    public <T> Flux<T> execute(TransactionCallback<T> action) {
+        return Flux.defer(() -> action.doInTransaction(new NoOpTransaction()));
+    }
+
+    private static final class NoOpTransaction implements ReactiveTransaction {
+
+        private boolean rollbackOnly;
+
+        @Override
+        public boolean isNewTransaction() {
+            return false;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            rollbackOnly = true;
+        }
+
+        @Override
+        public boolean isRollbackOnly() {
+            return rollbackOnly;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return false;
+        }
+    }
+}
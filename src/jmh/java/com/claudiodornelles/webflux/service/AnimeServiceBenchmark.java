@@ -0,0 +1,98 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.domain.TimeOrderedIdGenerator;
+import com.claudiodornelles.webflux.repository.InMemoryAnimeRepository;
+import com.claudiodornelles.webflux.repository.PassThroughTransactionalOperator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import javax.validation.Validation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class AnimeServiceBenchmark {
+
+    private static final String NAME = "Tensei Shitara Slime Datta Ken";
+
+    private InMemoryAnimeRepository repository;
+    private AnimeService service;
+    private Anime storedAnime;
+    private Anime updatedAnime;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryAnimeRepository();
+        var properties = new AnimeProperties();
+        var batchWriter = new AnimeBatchWriter(repository, new PassThroughTransactionalOperator(), properties,
+                new TimeOrderedIdGenerator());
+        service = new AnimeService(repository, properties, new AnimeCache(properties),
+                new AnimeJsonCache(properties, Jackson2ObjectMapperBuilder.json().build()), batchWriter,
+                new AnimeBatchLoader(repository, properties),
+                new EntityValidator(Validation.buildDefaultValidatorFactory().getValidator()),
+                new AnimeWriteBehindBuffer(batchWriter, new TimeOrderedIdGenerator(), properties),
+                new AnimeChangeStream(properties));
+        storedAnime = service.save(Anime.builder().name(NAME).build()).block();
+        updatedAnime = storedAnime.withName(NAME + " 2").withVersion(null);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearNewAnimes() {
+        repository.deleteAll().block();
+        repository.insertAll(List.of(storedAnime)).blockLast();
+    }
+
+    @Benchmark
+    public Anime save() {
+        return service.save(Anime.builder().name(NAME).build()).block();
+    }
+
+    @Benchmark
+    public List<Anime> saveAll(Batch batch) {
+        var animes = new ArrayList<Anime>(batch.batchSize);
+        for (int i = 0; i < batch.batchSize; i++) {
+            animes.add(Anime.builder().name(NAME).build());
+        }
+        return service.saveAll(animes).collectList().block();
+    }
+
+    @Benchmark
+    public Anime findById() {
+        return service.findById(storedAnime.getId()).block();
+    }
+
+    @Benchmark
+    public void update() {
+        service.update(updatedAnime).block();
+    }
+
+    /**
+     * Holds the batch size in its own state, so only {@link #saveAll(Batch)} runs once per size.
+     */
+    @State(Scope.Benchmark)
+    public static class Batch {
+
+        @Param({"10", "1000"})
+        private int batchSize;
+    }
+}
@@ -0,0 +1,67 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.domain.Anime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.ValidatorFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the shared {@link EntityValidator} with building a {@link ValidatorFactory} per entity, which is what
+ * {@code AnimeService} used to do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityValidatorBenchmark {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private EntityValidator entityValidator;
+    private Anime anime;
+    private List<Anime> batch;
+
+    @Setup
+    public void setUp() {
+        entityValidator = new EntityValidator(Validation.buildDefaultValidatorFactory().getValidator());
+        anime = Anime.builder().name("jmh-validation").build();
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(Anime.builder().name("jmh-validation " + i).build());
+        }
+    }
+
+    @Benchmark
+    public Anime validate() {
+        return entityValidator.validate(anime);
+    }
+
+    @Benchmark
+    public List<Anime> validateBatch() {
+        return entityValidator.validateAll(batch);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Anime>> factoryPerCall() {
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            return factory.getValidator().validate(anime);
+        }
+    }
+}
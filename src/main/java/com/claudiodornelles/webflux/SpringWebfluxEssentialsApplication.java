@@ -3,10 +3,12 @@ package com.claudiodornelles.webflux;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.web.WebProperties;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.annotation.Bean;
 import reactor.blockhound.BlockHound;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class SpringWebfluxEssentialsApplication {
 
     @Bean
@@ -15,6 +17,7 @@ public class SpringWebfluxEssentialsApplication {
     }
 
     static {
+        // anime.id-strategy=random generates ids with UUID.randomUUID, which reads SecureRandom on the event loop
         BlockHound.install(builder -> builder.allowBlockingCallsInside("java.util.UUID", "randomUUID"));
     }
 
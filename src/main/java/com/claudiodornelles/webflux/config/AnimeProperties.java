@@ -0,0 +1,206 @@
+package com.claudiodornelles.webflux.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "anime")
+public class AnimeProperties {
+
+    private IdStrategy idStrategy = IdStrategy.TIME_ORDERED;
+
+    private final Pool pool = new Pool();
+
+    private final Web web = new Web();
+
+    private final InMemory inMemory = new InMemory();
+
+    private final Pagination pagination = new Pagination();
+
+    private final Streaming streaming = new Streaming();
+
+    private final Cache cache = new Cache();
+
+    private final JsonCache jsonCache = new JsonCache();
+
+    private final Batch batch = new Batch();
+
+    private final BatchLoader batchLoader = new BatchLoader();
+
+    private final WriteBehind writeBehind = new WriteBehind();
+
+    private final Changes changes = new Changes();
+
+    private final Errors errors = new Errors();
+
+    private final ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+    public enum IdStrategy {
+        TIME_ORDERED,
+        RANDOM
+    }
+
+    @Data
+    public static class Pool {
+
+        private int initialSize = 10;
+
+        private int maxSize = 10;
+
+        private Duration maxIdleTime = Duration.ofMinutes(30);
+
+        private Duration acquireTimeout = Duration.ofSeconds(5);
+
+        private String validationQuery = "SELECT 1";
+    }
+
+    @Data
+    public static class Web {
+
+        private Dispatch dispatch = Dispatch.ANNOTATED;
+
+        public enum Dispatch {
+            ANNOTATED,
+            FUNCTIONAL
+        }
+    }
+
+    @Data
+    public static class InMemory {
+
+        private String snapshotPath;
+
+        private Duration snapshotInterval = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Pagination {
+
+        private int defaultLimit = 20;
+
+        private int maxLimit = 100;
+    }
+
+    @Data
+    public static class Streaming {
+
+        private int fetchSize = 256;
+
+        private int prefetch = 256;
+    }
+
+    @Data
+    public static class Cache {
+
+        private long maximumSize = 10_000;
+
+        private Duration timeToLive = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class JsonCache {
+
+        private boolean enabled = true;
+
+        private DataSize maximumSize = DataSize.ofMegabytes(16);
+
+        private Duration timeToLive = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Batch {
+
+        private int chunkSize = 500;
+
+        private boolean commitPerChunk = false;
+
+        private Duration maxDelay = Duration.ofMillis(100);
+    }
+
+    @Data
+    public static class BatchLoader {
+
+        private boolean enabled = true;
+
+        private Duration window = Duration.ofMillis(2);
+
+        private int maxBatchSize = 100;
+
+        private int maxConcurrentBatches = 8;
+    }
+
+    @Data
+    public static class WriteBehind {
+
+        private boolean enabled = false;
+
+        private Ack ack = Ack.DURABLE;
+
+        private int capacity = 10_000;
+
+        private int maxBatchSize = 500;
+
+        private Duration flushInterval = Duration.ofMillis(10);
+
+        private Duration maxEnqueueWait = Duration.ofSeconds(5);
+
+        public enum Ack {
+            DURABLE,
+            ENQUEUE
+        }
+    }
+
+    @Data
+    public static class Changes {
+
+        private int replaySize = 1024;
+
+        private int subscriberBuffer = 256;
+
+        private SlowSubscriber slowSubscriber = SlowSubscriber.DROP_OLDEST;
+
+        public enum SlowSubscriber {
+            DROP_OLDEST,
+            DISCONNECT
+        }
+    }
+
+    @Data
+    public static class Errors {
+
+        private boolean preEncoded = true;
+    }
+
+    @Data
+    public static class ConcurrencyLimit {
+
+        private boolean enabled = true;
+
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        private final Limit read = new Limit(100, 10, 1000, Duration.ofMillis(250), 0.9);
+
+        private final Limit write = new Limit(20, 2, 200, Duration.ofMillis(500), 0.9);
+
+        @Data
+        @NoArgsConstructor
+        @AllArgsConstructor
+        public static class Limit {
+
+            private int initialLimit;
+
+            private int minLimit;
+
+            private int maxLimit;
+
+            private Duration latencyThreshold;
+
+            private double backoffRatio;
+        }
+    }
+}
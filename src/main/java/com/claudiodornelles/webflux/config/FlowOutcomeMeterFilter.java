@@ -0,0 +1,40 @@
+package com.claudiodornelles.webflux.config;
+
+import com.claudiodornelles.webflux.exception.NotFoundException;
+import com.claudiodornelles.webflux.exception.ServiceValidationException;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds an {@code outcome} tag to the {@code anime.*.flow.duration} timers recorded by Reactor's {@code metrics()},
+ * derived from the {@code status} and {@code exception} tags Reactor sets on them.
+ */
+@Component
+public class FlowOutcomeMeterFilter implements MeterFilter {
+
+    private static final String PREFIX = "anime.";
+    private static final String SUFFIX = ".flow.duration";
+
+    @Override
+    public Meter.Id map(Meter.Id id) {
+        if (!id.getName().startsWith(PREFIX) || !id.getName().endsWith(SUFFIX)) {
+            return id;
+        }
+        return id.withTag(Tag.of("outcome", outcome(id.getTag("status"), id.getTag("exception"))));
+    }
+
+    private static String outcome(String status, String exception) {
+        if (!"error".equals(status)) {
+            return "cancelled".equals(status) ? "cancelled" : "success";
+        }
+        if (NotFoundException.class.getName().equals(exception)) {
+            return NotFoundException.class.getSimpleName();
+        }
+        if (ServiceValidationException.class.getName().equals(exception)) {
+            return ServiceValidationException.class.getSimpleName();
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,22 @@
+package com.claudiodornelles.webflux.config;
+
+import com.claudiodornelles.webflux.domain.TimeOrderedIdGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.IdGenerator;
+import org.springframework.util.JdkIdGenerator;
+
+@Configuration
+public class IdGeneratorConfiguration {
+
+    @Bean
+    public IdGenerator idGenerator(AnimeProperties animeProperties) {
+        switch (animeProperties.getIdStrategy()) {
+            case RANDOM:
+                return new JdkIdGenerator();
+            case TIME_ORDERED:
+            default:
+                return new TimeOrderedIdGenerator();
+        }
+    }
+}
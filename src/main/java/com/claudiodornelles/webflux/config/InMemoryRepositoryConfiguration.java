@@ -0,0 +1,33 @@
+package com.claudiodornelles.webflux.config;
+
+import com.claudiodornelles.webflux.repository.AnimeRepository;
+import com.claudiodornelles.webflux.repository.AnimeSnapshotFile;
+import com.claudiodornelles.webflux.repository.InMemoryAnimeRepository;
+import com.claudiodornelles.webflux.repository.InMemoryTransactionManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.util.IdGenerator;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+
+@Configuration
+@Profile("in-memory")
+public class InMemoryRepositoryConfiguration {
+
+    @Bean(initMethod = "restore", destroyMethod = "dispose")
+    public AnimeRepository animeRepository(IdGenerator idGenerator, AnimeProperties animeProperties) {
+        var inMemory = animeProperties.getInMemory();
+        var snapshotFile = StringUtils.hasText(inMemory.getSnapshotPath())
+                ? new AnimeSnapshotFile(Path.of(inMemory.getSnapshotPath()))
+                : null;
+        return new InMemoryAnimeRepository(idGenerator, snapshotFile, inMemory.getSnapshotInterval());
+    }
+
+    @Bean
+    public ReactiveTransactionManager transactionManager() {
+        return new InMemoryTransactionManager();
+    }
+}
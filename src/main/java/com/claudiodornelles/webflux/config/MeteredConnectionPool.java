@@ -0,0 +1,89 @@
+package com.claudiodornelles.webflux.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.R2dbcTimeoutException;
+import io.r2dbc.spi.Wrapped;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times every connection acquisition from the wrapped {@link ConnectionPool} and counts the ones that time out.
+ * Pool occupancy is left to Spring Boot's {@code r2dbc.pool.*} gauges, which find the pool through {@link Wrapped}.
+ */
+public class MeteredConnectionPool implements ConnectionFactory, Wrapped<ConnectionPool>, Disposable, MeterBinder {
+
+    private final ConnectionPool pool;
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private volatile Timer acquireTimer;
+
+    public MeteredConnectionPool(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return pool.create()
+                    .doOnSuccess(connection -> recordAcquireTime(System.nanoTime() - start))
+                    .doOnError(this::isAcquireTimeout, error -> acquireTimeouts.increment());
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return pool.getMetadata();
+    }
+
+    @Override
+    public ConnectionPool unwrap() {
+        return pool;
+    }
+
+    @Override
+    public void dispose() {
+        pool.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return pool.isDisposed();
+    }
+
+    public long acquireTimeoutCount() {
+        return acquireTimeouts.sum();
+    }
+
+    private void recordAcquireTime(long nanos) {
+        var timer = acquireTimer;
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private boolean isAcquireTimeout(Throwable error) {
+        return error instanceof R2dbcTimeoutException || error instanceof TimeoutException;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        acquireTimer = Timer.builder("anime.r2dbc.pool.acquire")
+                .description("Time to acquire a connection from the pool")
+                .publishPercentileHistogram()
+                .register(registry);
+        FunctionCounter.builder("anime.r2dbc.pool.acquire.timeouts", acquireTimeouts, LongAdder::doubleValue)
+                .description("Connection acquisitions that exceeded the acquire timeout")
+                .register(registry);
+    }
+}
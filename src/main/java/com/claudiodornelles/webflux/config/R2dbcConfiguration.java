@@ -0,0 +1,38 @@
+package com.claudiodornelles.webflux.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.StringUtils;
+
+@Configuration
+@Profile("!in-memory")
+public class R2dbcConfiguration {
+
+    @Bean(destroyMethod = "dispose")
+    public MeteredConnectionPool connectionFactory(R2dbcProperties r2dbcProperties, AnimeProperties animeProperties) {
+        var options = ConnectionFactoryOptions.parse(r2dbcProperties.getUrl()).mutate();
+        if (StringUtils.hasText(r2dbcProperties.getUsername())) {
+            options.option(ConnectionFactoryOptions.USER, r2dbcProperties.getUsername());
+        }
+        if (StringUtils.hasText(r2dbcProperties.getPassword())) {
+            options.option(ConnectionFactoryOptions.PASSWORD, r2dbcProperties.getPassword());
+        }
+
+        var pool = animeProperties.getPool();
+        var configuration = ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .name("anime")
+                .initialSize(pool.getInitialSize())
+                .maxSize(pool.getMaxSize())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxAcquireTime(pool.getAcquireTimeout())
+                .validationQuery(pool.getValidationQuery())
+                .build();
+        return new MeteredConnectionPool(new ConnectionPool(configuration));
+    }
+}
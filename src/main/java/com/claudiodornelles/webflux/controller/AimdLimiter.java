@@ -0,0 +1,93 @@
+package com.claudiodornelles.webflux.controller;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Additive-increase/multiplicative-decrease concurrency limit: a response slower than the latency threshold, or a
+ * dropped one, shrinks the limit by the backoff ratio, and every faster one grows it by one while at least half of it
+ * is in use. The limit shrinks at most once per latency threshold, since the requests that were in flight alongside
+ * the one that backed off saw the same congestion.
+ */
+final class AimdLimiter {
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong nextBackoff;
+    private final LongAdder rejected = new LongAdder();
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final LongSupplier nanoClock;
+
+    AimdLimiter(AnimeProperties.ConcurrencyLimit.Limit properties) {
+        this(properties, System::nanoTime);
+    }
+
+    AimdLimiter(AnimeProperties.ConcurrencyLimit.Limit properties, LongSupplier nanoClock) {
+        this.minLimit = Math.max(1, properties.getMinLimit());
+        this.maxLimit = Math.max(minLimit, properties.getMaxLimit());
+        this.limit = new AtomicInteger(Math.min(maxLimit, Math.max(minLimit, properties.getInitialLimit())));
+        this.latencyThresholdNanos = properties.getLatencyThreshold().toNanos();
+        this.backoffRatio = properties.getBackoffRatio();
+        this.nanoClock = nanoClock;
+        this.nextBackoff = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            var current = inFlight.get();
+            if (current >= limit.get()) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long latencyNanos) {
+        var inFlightBefore = inFlight.getAndDecrement();
+        if (latencyNanos > latencyThresholdNanos) {
+            backOff();
+        } else if (inFlightBefore * 2 >= limit.get()) {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    void drop() {
+        inFlight.decrementAndGet();
+        backOff();
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private void backOff() {
+        var now = nanoClock.getAsLong();
+        var next = nextBackoff.get();
+        if (now - next < 0 || !nextBackoff.compareAndSet(next, now + latencyThresholdNanos)) {
+            return;
+        }
+        limit.updateAndGet(current -> Math.max(minLimit, (int) (current * backoffRatio)));
+    }
+
+    int limit() {
+        return limit.get();
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    long rejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,121 @@
+package com.claudiodornelles.webflux.controller;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.exception.DomainException;
+import com.claudiodornelles.webflux.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sheds load on the {@code /animes} endpoints before it queues up on the connection pool. Reads and writes have
+ * their own {@link AimdLimiter}; a request over its limit is answered with 503 and {@code Retry-After} at once.
+ * The change stream never ends, so it is not limited, and streaming responses hold a permit without feeding their
+ * duration into the limit. Server errors and timeouts count as drops and shrink the limit however fast they fail.
+ */
+@Component
+@ConditionalOnProperty(prefix = "anime.concurrency-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AnimeConcurrencyLimitFilter implements WebFilter, MeterBinder {
+
+    private final AimdLimiter readLimiter;
+    private final AimdLimiter writeLimiter;
+    private final String retryAfter;
+
+    public AnimeConcurrencyLimitFilter(AnimeProperties animeProperties) {
+        var properties = animeProperties.getConcurrencyLimit();
+        this.readLimiter = new AimdLimiter(properties.getRead());
+        this.writeLimiter = new AimdLimiter(properties.getWrite());
+        this.retryAfter = String.valueOf(Math.max(1, properties.getRetryAfter().getSeconds()));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var request = exchange.getRequest();
+        var path = request.getPath().pathWithinApplication().value();
+        if (!isLimited(path)) {
+            return chain.filter(exchange);
+        }
+        var read = HttpMethod.GET.equals(request.getMethod()) || HttpMethod.HEAD.equals(request.getMethod());
+        var limiter = read ? readLimiter : writeLimiter;
+        return Mono.defer(() -> {
+            if (!limiter.tryAcquire()) {
+                exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+                return Mono.error(new ServiceUnavailableException(
+                        "too many concurrent " + (read ? "reads" : "writes") + ", retry later"));
+            }
+            var sampled = !isStreaming(path, request);
+            var start = System.nanoTime();
+            return chain.filter(exchange)
+                    .doOnSuccess(done -> release(limiter, sampled, start,
+                            isServerError(exchange.getResponse().getStatusCode())))
+                    .doOnError(error -> release(limiter, sampled, start, isServerError(error)))
+                    .doOnCancel(limiter::release);
+        });
+    }
+
+    private static void release(AimdLimiter limiter, boolean sampled, long start, boolean dropped) {
+        if (dropped) {
+            limiter.drop();
+        } else if (sampled) {
+            limiter.release(System.nanoTime() - start);
+        } else {
+            limiter.release();
+        }
+    }
+
+    private static boolean isServerError(HttpStatus status) {
+        return status != null && status.is5xxServerError();
+    }
+
+    // errors reach the filter before GlobalExceptionHandler turns them into a status, so they are classified here
+    private static boolean isServerError(Throwable error) {
+        if (error instanceof ResponseStatusException) {
+            return ((ResponseStatusException) error).getStatus().is5xxServerError();
+        }
+        return !(error instanceof DomainException) || error instanceof ServiceUnavailableException;
+    }
+
+    private static boolean isLimited(String path) {
+        return (path.equals("/animes") || path.startsWith("/animes/")) && !path.startsWith("/animes/changes");
+    }
+
+    private static boolean isStreaming(String path, ServerHttpRequest request) {
+        return path.equals("/animes/import") || request.getHeaders().getAccept().stream()
+                .anyMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON)
+                        || type.equalsTypeAndSubtype(MediaType.TEXT_EVENT_STREAM));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "read", readLimiter);
+        bind(registry, "write", writeLimiter);
+    }
+
+    private static void bind(MeterRegistry registry, String type, AimdLimiter limiter) {
+        Gauge.builder("anime.concurrency.limit", limiter, AimdLimiter::limit)
+                .description("Current adaptive concurrency limit")
+                .tag("type", type)
+                .register(registry);
+        Gauge.builder("anime.concurrency.in-flight", limiter, AimdLimiter::inFlight)
+                .description("Requests currently holding a concurrency permit")
+                .tag("type", type)
+                .register(registry);
+        FunctionCounter.builder("anime.concurrency.rejected", limiter, AimdLimiter::rejected)
+                .description("Requests rejected with 503 for exceeding the concurrency limit")
+                .tag("type", type)
+                .register(registry);
+    }
+}
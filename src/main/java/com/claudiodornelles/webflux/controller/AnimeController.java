@@ -1,65 +1,159 @@
 package com.claudiodornelles.webflux.controller;
 
 import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.domain.AnimeChange;
+import com.claudiodornelles.webflux.domain.AnimePage;
+import com.claudiodornelles.webflux.exception.PreconditionFailedException;
+import com.claudiodornelles.webflux.exception.VersionConflictException;
 import com.claudiodornelles.webflux.service.AnimeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.UUID;
 
+import static com.claudiodornelles.webflux.config.BinaryCodecConfiguration.APPLICATION_SMILE_VALUE;
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.LAST_EVENT_ID;
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.eTag;
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.nextLink;
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.prefersJson;
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.timed;
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.timedFlux;
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.versionOf;
+
 @RequiredArgsConstructor
 @RestController
+@ConditionalOnProperty(prefix = "anime.web", name = "dispatch", havingValue = "annotated", matchIfMissing = true)
 @RequestMapping("animes")
 @Slf4j
 public class AnimeController {
 
     private final AnimeService animeService;
 
-    @GetMapping
-    public Flux<Anime> findAll() {
-        return animeService.findAll();
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public Mono<ResponseEntity<List<Anime>>> findAll(@RequestParam(required = false) UUID after,
+                                                     @RequestParam(required = false) Integer limit,
+                                                     ServerWebExchange exchange) {
+        return timed("findAll", () -> animeService.collectionVersion()
+                .flatMap(version -> {
+                    var eTag = eTag(version);
+                    if (exchange.checkNotModified(eTag)) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                .eTag(eTag)
+                                .<List<Anime>>build());
+                    }
+                    return animeService.findPage(after, limit)
+                            .map(page -> toResponse(page, exchange.getRequest(), eTag));
+                }));
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Anime> streamAll(@RequestParam(required = false) UUID after) {
+        return timedFlux("streamAll", () -> animeService.streamAll(after));
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<AnimeChange>> changeEvents(@RequestParam(required = false) Long since,
+                                                          @RequestHeader(value = LAST_EVENT_ID, required = false) Long lastEventId) {
+        return animeService.changes(lastEventId != null ? lastEventId : since)
+                .map(AnimeWebSupport::toEvent);
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<AnimeChange> changes(@RequestParam(required = false) Long since) {
+        return animeService.changes(since);
+    }
+
+    @GetMapping(params = "ids")
+    public Flux<Anime> findAllById(@RequestParam List<UUID> ids) {
+        return timedFlux("findAllById", () -> animeService.findAllById(ids));
+    }
+
+    @GetMapping("/search")
+    public Flux<Anime> search(@RequestParam String q, @RequestParam(required = false) Integer limit) {
+        return timedFlux("search", () -> animeService.search(q, limit));
     }
 
     @GetMapping("{id}")
-    public Mono<Anime> findById(@PathVariable UUID id) {
-        return animeService.findById(id);
+    public Mono<ResponseEntity<?>> findById(@PathVariable UUID id, ServerWebExchange exchange) {
+        if (prefersJson(exchange.getRequest().getHeaders().getAccept())) {
+            return timed("findById", () -> animeService.findJsonById(id)
+                    .map(json -> withETag(ResponseEntity.ok(), json.getVersion())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(json.getBytes())));
+        }
+        return timed("findById", () -> animeService.findById(id)
+                .map(anime -> withETag(ResponseEntity.ok(), anime.getVersion()).body(anime)));
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<Anime> save(@RequestBody Anime anime) {
-        return animeService.save(anime);
+        return timed("save", () -> animeService.save(anime));
     }
 
     @PostMapping("/batch")
     @ResponseStatus(HttpStatus.CREATED)
     public Flux<Anime> saveBatch(@RequestBody List<Anime> animes) {
-        return animeService.saveAll(animes);
+        return timedFlux("saveBatch", () -> animeService.saveAll(animes));
+    }
+
+    @PostMapping(value = "/import",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public Flux<Anime> importAnimes(@RequestBody Flux<Anime> animes) {
+        return timedFlux("import", () -> animeService.saveStream(animes));
     }
 
     @PutMapping("{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public Mono<Void> update(@PathVariable UUID id, @RequestBody Anime anime) {
-        return animeService.update(anime.withId(id));
+    public Mono<Void> update(@PathVariable UUID id,
+                             @RequestBody Anime anime,
+                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch == null || ifMatch.equals("*")) {
+            return timed("update", () -> animeService.update(anime.withId(id)));
+        }
+        return timed("update", () -> animeService.update(anime.withId(id).withVersion(versionOf(ifMatch)))
+                .onErrorMap(VersionConflictException.class, conflict -> new PreconditionFailedException(conflict.getMessage())));
     }
 
     @DeleteMapping("{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> delete(@PathVariable UUID id) {
-        return animeService.delete(id);
+        return timed("delete", () -> animeService.delete(id));
     }
-}
 
+    private static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder response, Long version) {
+        return version == null ? response : response.eTag(eTag(version));
+    }
+
+    private static ResponseEntity<List<Anime>> toResponse(AnimePage page, ServerHttpRequest request, String eTag) {
+        var response = ResponseEntity.ok().eTag(eTag);
+        if (page.getNext() != null) {
+            response.header(HttpHeaders.LINK, nextLink(request, page.getNext()));
+        }
+        return response.body(page.getContent());
+    }
+}
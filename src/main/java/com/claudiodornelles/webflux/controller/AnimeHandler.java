@@ -0,0 +1,237 @@
+package com.claudiodornelles.webflux.controller;
+
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.domain.AnimeChange;
+import com.claudiodornelles.webflux.exception.PreconditionFailedException;
+import com.claudiodornelles.webflux.exception.VersionConflictException;
+import com.claudiodornelles.webflux.service.AnimeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.LAST_EVENT_ID;
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.eTag;
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.nextLink;
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.prefersJson;
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.timed;
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.timedFlux;
+import static com.claudiodornelles.webflux.controller.AnimeWebSupport.versionOf;
+
+/**
+ * Handler functions behind {@link AnimeRouter}, answering exactly like {@link AnimeController} without going through
+ * annotated handler-method lookup and reflective argument resolution.
+ */
+@Component
+@ConditionalOnProperty(prefix = "anime.web", name = "dispatch", havingValue = "functional")
+@RequiredArgsConstructor
+public class AnimeHandler {
+
+    private static final ParameterizedTypeReference<List<Anime>> ANIME_LIST = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<ServerSentEvent<AnimeChange>> CHANGE_EVENT =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final AnimeService animeService;
+
+    public Mono<ServerResponse> findAll(ServerRequest request) {
+        return Mono.defer(() -> {
+            var after = uuidParam(request, "after");
+            var limit = intParam(request, "limit");
+            return timed("findAll", () -> animeService.collectionVersion()
+                    .flatMap(version -> {
+                        var eTag = eTag(version);
+                        if (request.exchange().checkNotModified(eTag)) {
+                            return ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+                        }
+                        return animeService.findPage(after, limit)
+                                .flatMap(page -> {
+                                    var response = ServerResponse.ok().eTag(eTag);
+                                    if (page.getNext() != null) {
+                                        response.header(HttpHeaders.LINK,
+                                                nextLink(request.exchange().getRequest(), page.getNext()));
+                                    }
+                                    return response.bodyValue(page.getContent());
+                                });
+                    }));
+        });
+    }
+
+    public Mono<ServerResponse> streamAll(ServerRequest request) {
+        return Mono.defer(() -> {
+            var after = uuidParam(request, "after");
+            return ServerResponse.ok()
+                    .contentType(acceptsEventStream(request) ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON)
+                    .body(timedFlux("streamAll", () -> animeService.streamAll(after)), Anime.class);
+        });
+    }
+
+    public Mono<ServerResponse> changes(ServerRequest request) {
+        return Mono.defer(() -> {
+            var since = longParam(request, "since");
+            if (!acceptsEventStream(request)) {
+                return ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .body(animeService.changes(since), AnimeChange.class);
+            }
+            var lastEventId = request.headers().asHttpHeaders().getFirst(LAST_EVENT_ID);
+            var resumeAfter = lastEventId != null ? toLong(LAST_EVENT_ID, lastEventId) : since;
+            return ServerResponse.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body(animeService.changes(resumeAfter).map(AnimeWebSupport::toEvent), CHANGE_EVENT);
+        });
+    }
+
+    public Mono<ServerResponse> findAllById(ServerRequest request) {
+        return Mono.defer(() -> {
+            var ids = new ArrayList<UUID>();
+            for (String values : request.queryParams().get("ids")) {
+                for (String value : values.split(",")) {
+                    ids.add(toUuid("ids", value.trim()));
+                }
+            }
+            return ServerResponse.ok()
+                    .body(timedFlux("findAllById", () -> animeService.findAllById(ids)), Anime.class);
+        });
+    }
+
+    public Mono<ServerResponse> search(ServerRequest request) {
+        return Mono.defer(() -> {
+            var query = request.queryParam("q")
+                    .orElseThrow(() -> new ServerWebInputException("Required query parameter 'q' is not present"));
+            var limit = intParam(request, "limit");
+            return ServerResponse.ok()
+                    .body(timedFlux("search", () -> animeService.search(query, limit)), Anime.class);
+        });
+    }
+
+    public Mono<ServerResponse> findById(ServerRequest request) {
+        return Mono.defer(() -> {
+            var id = idOf(request);
+            if (prefersJson(request.headers().accept())) {
+                return timed("findById", () -> animeService.findJsonById(id)
+                        .flatMap(json -> withETag(ServerResponse.ok(), json.getVersion())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .bodyValue(json.getBytes())));
+            }
+            return timed("findById", () -> animeService.findById(id)
+                    .flatMap(anime -> withETag(ServerResponse.ok(), anime.getVersion()).bodyValue(anime)));
+        });
+    }
+
+    public Mono<ServerResponse> save(ServerRequest request) {
+        return request.bodyToMono(Anime.class)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("No request body")))
+                .flatMap(anime -> timed("save", () -> animeService.save(anime)))
+                .flatMap(saved -> ServerResponse.status(HttpStatus.CREATED).bodyValue(saved));
+    }
+
+    public Mono<ServerResponse> saveBatch(ServerRequest request) {
+        return request.bodyToMono(ANIME_LIST)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("No request body")))
+                .flatMap(animes -> ServerResponse.status(HttpStatus.CREATED)
+                        .body(timedFlux("saveBatch", () -> animeService.saveAll(animes)), Anime.class));
+    }
+
+    public Mono<ServerResponse> importAnimes(ServerRequest request) {
+        var animes = request.bodyToFlux(Anime.class);
+        return ServerResponse.status(HttpStatus.CREATED)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(timedFlux("import", () -> animeService.saveStream(animes)), Anime.class);
+    }
+
+    public Mono<ServerResponse> update(ServerRequest request) {
+        return Mono.defer(() -> {
+            var id = idOf(request);
+            var ifMatch = request.headers().asHttpHeaders().getFirst(HttpHeaders.IF_MATCH);
+            return request.bodyToMono(Anime.class)
+                    .switchIfEmpty(Mono.error(() -> new ServerWebInputException("No request body")))
+                    .flatMap(anime -> {
+                        if (ifMatch == null || ifMatch.equals("*")) {
+                            return timed("update", () -> animeService.update(anime.withId(id)));
+                        }
+                        return timed("update", () -> animeService.update(anime.withId(id).withVersion(versionOf(ifMatch)))
+                                .onErrorMap(VersionConflictException.class,
+                                        conflict -> new PreconditionFailedException(conflict.getMessage())));
+                    })
+                    .then(ServerResponse.noContent().build());
+        });
+    }
+
+    public Mono<ServerResponse> delete(ServerRequest request) {
+        return Mono.defer(() -> {
+            var id = idOf(request);
+            return timed("delete", () -> animeService.delete(id))
+                    .then(ServerResponse.noContent().build());
+        });
+    }
+
+    private static UUID idOf(ServerRequest request) {
+        return toUuid("id", request.pathVariable("id"));
+    }
+
+    private static UUID uuidParam(ServerRequest request, String name) {
+        return request.queryParam(name)
+                .filter(value -> !value.isEmpty())
+                .map(value -> toUuid(name, value))
+                .orElse(null);
+    }
+
+    private static Long longParam(ServerRequest request, String name) {
+        return request.queryParam(name)
+                .filter(value -> !value.isEmpty())
+                .map(value -> toLong(name, value))
+                .orElse(null);
+    }
+
+    private static Long toLong(String name, String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException(name + " should be a number, got " + value);
+        }
+    }
+
+    private static ServerResponse.BodyBuilder withETag(ServerResponse.BodyBuilder response, Long version) {
+        return version == null ? response : response.eTag(eTag(version));
+    }
+
+    private static boolean acceptsEventStream(ServerRequest request) {
+        return request.headers().accept().stream()
+                .anyMatch(type -> type.equalsTypeAndSubtype(MediaType.TEXT_EVENT_STREAM));
+    }
+
+    private static Integer intParam(ServerRequest request, String name) {
+        return request.queryParam(name)
+                .filter(value -> !value.isEmpty())
+                .map(value -> {
+                    try {
+                        return Integer.valueOf(value);
+                    } catch (NumberFormatException e) {
+                        throw new ServerWebInputException(name + " should be a number, got " + value);
+                    }
+                })
+                .orElse(null);
+    }
+
+    private static UUID toUuid(String name, String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new ServerWebInputException(name + " should be a UUID, got " + value);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.claudiodornelles.webflux.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+
+@Configuration
+@ConditionalOnProperty(prefix = "anime.web", name = "dispatch", havingValue = "functional")
+public class AnimeRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> animeRoutes(AnimeHandler handler) {
+        return RouterFunctions.route()
+                .GET("/animes", queryParam("ids", ids -> true), handler::findAllById)
+                .GET("/animes", AnimeRouter::acceptsStream, handler::streamAll)
+                .GET("/animes", handler::findAll)
+                .GET("/animes/search", handler::search)
+                .GET("/animes/changes", handler::changes)
+                .GET("/animes/{id}", handler::findById)
+                .POST("/animes", handler::save)
+                .POST("/animes/batch", handler::saveBatch)
+                .POST("/animes/import", contentType(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON),
+                        handler::importAnimes)
+                .PUT("/animes/{id}", handler::update)
+                .DELETE("/animes/{id}", handler::delete)
+                .build();
+    }
+
+    private static boolean acceptsStream(ServerRequest request) {
+        return request.headers().accept().stream()
+                .anyMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON)
+                        || type.equalsTypeAndSubtype(MediaType.TEXT_EVENT_STREAM));
+    }
+}
@@ -0,0 +1,86 @@
+package com.claudiodornelles.webflux.controller;
+
+import com.claudiodornelles.webflux.domain.AnimeChange;
+import com.claudiodornelles.webflux.exception.ServiceValidationException;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Behaviour shared by the annotated and the functional anime endpoints, so both dispatch models answer and report
+ * metrics the same way.
+ */
+final class AnimeWebSupport {
+
+    static final String METRIC_NAME = "anime.http";
+
+    static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    private static final Pattern STRONG_VERSION_ETAG = Pattern.compile("\"\\d{1,18}\"");
+
+    private AnimeWebSupport() {
+    }
+
+    static <T> Mono<T> timed(String endpoint, Supplier<Mono<T>> handler) {
+        return Mono.defer(handler)
+                .name(METRIC_NAME)
+                .tag("endpoint", endpoint)
+                .metrics();
+    }
+
+    static <T> Flux<T> timedFlux(String endpoint, Supplier<Flux<T>> handler) {
+        return Flux.defer(handler)
+                .name(METRIC_NAME)
+                .tag("endpoint", endpoint)
+                .metrics();
+    }
+
+    static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Whether a response for this {@code Accept} list should be JSON. No Accept or a wildcard counts as JSON, so most
+     * clients are answered from the cached encoded bytes.
+     */
+    static boolean prefersJson(List<MediaType> accept) {
+        if (accept.isEmpty()) {
+            return true;
+        }
+        var mediaTypes = new ArrayList<>(accept);
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        return mediaTypes.get(0).includes(MediaType.APPLICATION_JSON);
+    }
+
+    static long versionOf(String ifMatch) {
+        var eTag = ifMatch.trim();
+        if (!STRONG_VERSION_ETAG.matcher(eTag).matches()) {
+            throw new ServiceValidationException("If-Match should be a strong ETag of this anime, got " + ifMatch);
+        }
+        return Long.parseLong(eTag.substring(1, eTag.length() - 1));
+    }
+
+    static ServerSentEvent<AnimeChange> toEvent(AnimeChange change) {
+        return ServerSentEvent.builder(change)
+                .id(String.valueOf(change.getSequence()))
+                .event(change.getType().name())
+                .build();
+    }
+
+    static String nextLink(ServerHttpRequest request, UUID next) {
+        var uri = UriComponentsBuilder.fromHttpRequest(request)
+                .replaceQueryParam("after", next)
+                .build()
+                .toUriString();
+        return "<" + uri + ">; rel=\"next\"";
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.With;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.domain.Persistable;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -27,10 +28,11 @@ public class Anime implements Persistable<UUID> {
     @NotEmpty(message = "name cannot be empty")
     private String name;
 
+    @Version
+    private Long version;
+
     @Override
     public boolean isNew() {
-        boolean result = Objects.isNull(id);
-        this.id = result ? UUID.randomUUID() : this.id;
-        return result;
+        return Objects.isNull(id);
     }
 }
@@ -0,0 +1,23 @@
+package com.claudiodornelles.webflux.domain;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+@Value
+public class AnimeChange {
+
+    long sequence;
+
+    Type type;
+
+    UUID id;
+
+    Anime anime;
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
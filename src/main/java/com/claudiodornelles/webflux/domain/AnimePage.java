@@ -0,0 +1,22 @@
+package com.claudiodornelles.webflux.domain;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.UUID;
+
+@Value
+public class AnimePage {
+
+    List<Anime> content;
+
+    UUID next;
+
+    public static AnimePage of(List<Anime> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new AnimePage(rows, null);
+        }
+        var content = rows.subList(0, pageSize);
+        return new AnimePage(content, content.get(pageSize - 1).getId());
+    }
+}
@@ -0,0 +1,43 @@
+package com.claudiodornelles.webflux.domain;
+
+import org.springframework.util.IdGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates UUIDv7-style ids: a 48-bit millisecond timestamp followed by a 12-bit counter, so ids created by this
+ * generator are strictly increasing, and 62 random bits from {@link ThreadLocalRandom}, which never blocks.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final long VARIANT_RFC_4122 = 0x8000000000000000L;
+
+    private final AtomicLong lastTimestampAndCounter = new AtomicLong();
+
+    @Override
+    public UUID generateId() {
+        var timestampAndCounter = nextTimestampAndCounter();
+        var mostSigBits = (timestampAndCounter >>> COUNTER_BITS) << 16
+                | VERSION_7
+                | (timestampAndCounter & ((1L << COUNTER_BITS) - 1));
+        var leastSigBits = ThreadLocalRandom.current().nextLong() & VARIANT_MASK | VARIANT_RFC_4122;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    private long nextTimestampAndCounter() {
+        var now = System.currentTimeMillis() << COUNTER_BITS;
+        while (true) {
+            var last = lastTimestampAndCounter.get();
+            // once the counter of a millisecond is exhausted, or the clock moves back, keep counting past it
+            var next = now > last ? now : last + 1;
+            if (lastTimestampAndCounter.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.claudiodornelles.webflux.exception;
 
 import org.springframework.boot.web.error.ErrorAttributeOptions;
 import org.springframework.boot.web.reactive.error.DefaultErrorAttributes;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 
@@ -16,13 +15,16 @@ public class CustomAttributes extends DefaultErrorAttributes {
         var errorAttributes = super.getErrorAttributes(request, options);
         var throwable = getError(request);
         errorAttributes.put("message", throwable.getMessage());
-        if (throwable instanceof ServiceValidationException) {
-            errorAttributes.put("error", "Service Validation Exception");
-            errorAttributes.put("status", HttpStatus.BAD_REQUEST.value());
+        var shape = ErrorShape.of(throwable);
+        if (shape != null) {
+            errorAttributes.put("error", shape.error());
+            errorAttributes.put("status", shape.status().value());
         }
-        if (throwable instanceof NotFoundException) {
-            errorAttributes.put("error", "Resource Not Found");
-            errorAttributes.put("status", HttpStatus.NOT_FOUND.value());
+        if (throwable instanceof ServiceValidationException) {
+            var violations = ((ServiceValidationException) throwable).getViolations();
+            if (!violations.isEmpty()) {
+                errorAttributes.put("violations", violations);
+            }
         }
         return errorAttributes;
     }
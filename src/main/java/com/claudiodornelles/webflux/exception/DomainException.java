@@ -0,0 +1,12 @@
+package com.claudiodornelles.webflux.exception;
+
+/**
+ * Base of the exceptions the service throws for expected outcomes such as a missing anime or an invalid request.
+ * They are answered with a status code and a message, so they never fill in a stack trace.
+ */
+public abstract class DomainException extends RuntimeException {
+
+    protected DomainException(String message) {
+        super(message, null, false, false);
+    }
+}
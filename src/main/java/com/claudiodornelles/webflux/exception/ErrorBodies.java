@@ -0,0 +1,72 @@
+package com.claudiodornelles.webflux.exception;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes {@code {"timestamp":...,"status":...,"error":...,"message":...}} straight into one byte array, matching
+ * what Jackson makes of the error attributes map without building or serializing the map.
+ */
+final class ErrorBodies {
+
+    // the format Jackson's StdDateFormat uses for the java.util.Date timestamp of DefaultErrorAttributes
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSxxx")
+            .withZone(ZoneOffset.UTC);
+    private static final byte[] OPEN = ascii("{\"timestamp\":\"");
+    private static final byte[] NULL_MESSAGE = ascii("null}");
+    private static final Map<HttpStatus, byte[]> STATUS_PREFIXES = new ConcurrentHashMap<>();
+
+    private ErrorBodies() {
+    }
+
+    static byte[] prefix(HttpStatus status, String error) {
+        return utf8("\",\"status\":" + status.value()
+                + ",\"error\":\"" + new String(JsonStringEncoder.getInstance().quoteAsString(error))
+                + "\",\"message\":");
+    }
+
+    static byte[] encode(HttpStatus status, String message) {
+        var prefix = STATUS_PREFIXES.computeIfAbsent(status, key -> prefix(key, key.getReasonPhrase()));
+        return encode(prefix, message);
+    }
+
+    static byte[] encode(byte[] prefix, String message) {
+        var timestamp = ascii(TIMESTAMP.format(Instant.now()));
+        var quoted = message == null ? null : JsonStringEncoder.getInstance().quoteAsUTF8(message);
+        var length = OPEN.length + timestamp.length + prefix.length
+                + (quoted == null ? NULL_MESSAGE.length : quoted.length + 3);
+        var body = new byte[length];
+        var position = copy(OPEN, body, 0);
+        position = copy(timestamp, body, position);
+        position = copy(prefix, body, position);
+        if (quoted == null) {
+            copy(NULL_MESSAGE, body, position);
+        } else {
+            body[position++] = '"';
+            position = copy(quoted, body, position);
+            body[position++] = '"';
+            body[position] = '}';
+        }
+        return body;
+    }
+
+    private static int copy(byte[] source, byte[] target, int position) {
+        System.arraycopy(source, 0, target, position, source.length);
+        return position + source.length;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
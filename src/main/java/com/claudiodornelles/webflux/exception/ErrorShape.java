@@ -0,0 +1,58 @@
+package com.claudiodornelles.webflux.exception;
+
+import org.springframework.http.HttpStatus;
+
+enum ErrorShape {
+
+    PRECONDITION_FAILED(PreconditionFailedException.class, HttpStatus.PRECONDITION_FAILED, "Precondition Failed"),
+    VERSION_CONFLICT(VersionConflictException.class, HttpStatus.CONFLICT, "Version Conflict"),
+    SERVICE_VALIDATION(ServiceValidationException.class, HttpStatus.BAD_REQUEST, "Service Validation Exception"),
+    SERVICE_UNAVAILABLE(ServiceUnavailableException.class, HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable"),
+    NOT_FOUND(NotFoundException.class, HttpStatus.NOT_FOUND, "Resource Not Found");
+
+    private static final ErrorShape[] SHAPES = values();
+
+    private final Class<? extends DomainException> type;
+    private final HttpStatus status;
+    private final String error;
+    private final byte[] encodedPrefix;
+
+    ErrorShape(Class<? extends DomainException> type, HttpStatus status, String error) {
+        this.type = type;
+        this.status = status;
+        this.error = error;
+        this.encodedPrefix = ErrorBodies.prefix(status, error);
+    }
+
+    static ErrorShape of(Throwable throwable) {
+        if (!(throwable instanceof DomainException)) {
+            return null;
+        }
+        for (var shape : SHAPES) {
+            if (shape.type.isInstance(throwable)) {
+                return shape;
+            }
+        }
+        return null;
+    }
+
+    HttpStatus status() {
+        return status;
+    }
+
+    String error() {
+        return error;
+    }
+
+    /**
+     * Encodes the same body {@link CustomAttributes} would produce for this throwable, or returns {@code null} when
+     * it carries more than a message.
+     */
+    byte[] encode(Throwable throwable) {
+        if (throwable instanceof ServiceValidationException
+                && !((ServiceValidationException) throwable).getViolations().isEmpty()) {
+            return null;
+        }
+        return ErrorBodies.encode(encodedPrefix, throwable.getMessage());
+    }
+}
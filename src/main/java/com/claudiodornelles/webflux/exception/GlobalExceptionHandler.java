@@ -1,11 +1,13 @@
 package com.claudiodornelles.webflux.exception;
 
+import com.claudiodornelles.webflux.config.AnimeProperties;
 import org.springframework.boot.autoconfigure.web.WebProperties;
 import org.springframework.boot.autoconfigure.web.reactive.error.AbstractErrorWebExceptionHandler;
 import org.springframework.boot.web.error.ErrorAttributeOptions;
 import org.springframework.boot.web.reactive.error.ErrorAttributes;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerCodecConfigurer;
 import org.springframework.stereotype.Component;
@@ -15,6 +17,7 @@ import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.RouterFunctions;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
 import java.util.Optional;
@@ -23,12 +26,16 @@ import java.util.Optional;
 @Component
 public class GlobalExceptionHandler extends AbstractErrorWebExceptionHandler {
 
+    private final boolean preEncoded;
+
     public GlobalExceptionHandler(ErrorAttributes errorAttributes,
                                   WebProperties.Resources resources,
                                   ApplicationContext applicationContext,
-                                  ServerCodecConfigurer codecConfigurer) {
+                                  ServerCodecConfigurer codecConfigurer,
+                                  AnimeProperties animeProperties) {
         super(errorAttributes, resources, applicationContext);
         this.setMessageWriters(codecConfigurer.getWriters());
+        this.preEncoded = animeProperties.getErrors().isPreEncoded();
     }
 
     @Override
@@ -37,6 +44,12 @@ public class GlobalExceptionHandler extends AbstractErrorWebExceptionHandler {
     }
 
     private Mono<ServerResponse> formatErrorResponse(ServerRequest request) {
+        if (preEncoded) {
+            var response = preEncodedErrorResponse(getError(request));
+            if (response != null) {
+                return response;
+            }
+        }
         var errorAttributes = getErrorAttributes(request, ErrorAttributeOptions.defaults());
         errorAttributes.remove("path");
         errorAttributes.remove("requestId");
@@ -47,4 +60,26 @@ public class GlobalExceptionHandler extends AbstractErrorWebExceptionHandler {
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(BodyInserters.fromValue(errorAttributes));
     }
+
+    private static Mono<ServerResponse> preEncodedErrorResponse(Throwable throwable) {
+        var shape = ErrorShape.of(throwable);
+        if (shape != null) {
+            var body = shape.encode(throwable);
+            return body == null ? null : errorResponse(shape.status(), body);
+        }
+        if (throwable instanceof ResponseStatusException) {
+            var exception = (ResponseStatusException) throwable;
+            var status = HttpStatus.resolve(exception.getRawStatusCode());
+            if (status != null && exception.getResponseHeaders().isEmpty()) {
+                return errorResponse(status, ErrorBodies.encode(status, exception.getMessage()));
+            }
+        }
+        return null;
+    }
+
+    private static Mono<ServerResponse> errorResponse(HttpStatus status, byte[] body) {
+        return ServerResponse.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body);
+    }
 }
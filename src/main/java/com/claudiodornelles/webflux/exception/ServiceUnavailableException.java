@@ -0,0 +1,8 @@
+package com.claudiodornelles.webflux.exception;
+
+public class ServiceUnavailableException extends DomainException {
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
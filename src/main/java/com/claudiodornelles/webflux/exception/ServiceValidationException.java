@@ -1,8 +1,29 @@
 package com.claudiodornelles.webflux.exception;
 
-public class ServiceValidationException extends RuntimeException {
+import lombok.Getter;
+import lombok.Value;
+
+import java.util.List;
+
+@Getter
+public class ServiceValidationException extends DomainException {
+
+    private final List<Violation> violations;
 
     public ServiceValidationException(String message) {
+        this(message, List.of());
+    }
+
+    public ServiceValidationException(String message, List<Violation> violations) {
         super(message);
+        this.violations = violations;
+    }
+
+    @Value
+    public static class Violation {
+
+        String field;
+
+        String message;
     }
 }
@@ -0,0 +1,8 @@
+package com.claudiodornelles.webflux.exception;
+
+public class VersionConflictException extends DomainException {
+
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package com.claudiodornelles.webflux.repository;
+
+import com.claudiodornelles.webflux.domain.Anime;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface AnimeBatchRepository {
+
+    int MAX_ROWS_PER_INSERT = 65_535 / 2;
+
+    Flux<Anime> insertAll(List<Anime> animes);
+
+}
@@ -0,0 +1,44 @@
+package com.claudiodornelles.webflux.repository;
+
+import com.claudiodornelles.webflux.domain.Anime;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class AnimeBatchRepositoryImpl implements AnimeBatchRepository {
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<Anime> insertAll(List<Anime> animes) {
+        if (animes.isEmpty()) {
+            return Flux.empty();
+        }
+        if (animes.size() > MAX_ROWS_PER_INSERT) {
+            throw new IllegalArgumentException("cannot insert more than " + MAX_ROWS_PER_INSERT + " rows in one statement");
+        }
+        var spec = databaseClient.sql(insertStatement(animes.size()));
+        for (int i = 0; i < animes.size(); i++) {
+            var anime = animes.get(i);
+            spec = spec.bind(2 * i, anime.getId())
+                    .bind(2 * i + 1, anime.getName());
+        }
+        return spec.fetch()
+                .rowsUpdated()
+                .thenMany(Flux.fromIterable(animes));
+    }
+
+    private static String insertStatement(int rows) {
+        var sql = new StringBuilder("INSERT INTO anime (id, name) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("($").append(2 * i + 1).append(", $").append(2 * i + 2).append(')');
+        }
+        return sql.toString();
+    }
+}
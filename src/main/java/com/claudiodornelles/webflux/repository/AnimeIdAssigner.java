@@ -0,0 +1,26 @@
+package com.claudiodornelles.webflux.repository;
+
+import com.claudiodornelles.webflux.domain.Anime;
+import lombok.RequiredArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import org.springframework.util.IdGenerator;
+import reactor.core.publisher.Mono;
+
+@Component
+@RequiredArgsConstructor
+public class AnimeIdAssigner implements BeforeConvertCallback<Anime> {
+
+    private final IdGenerator idGenerator;
+
+    @Override
+    public Publisher<Anime> onBeforeConvert(Anime entity, SqlIdentifier table) {
+        if (entity.getId() == null) {
+            entity.setId(idGenerator.generateId());
+            entity.setVersion(0L);
+        }
+        return Mono.just(entity);
+    }
+}
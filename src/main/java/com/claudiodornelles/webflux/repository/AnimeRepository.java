@@ -1,13 +1,48 @@
 package com.claudiodornelles.webflux.repository;
 
 import com.claudiodornelles.webflux.domain.Anime;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
 import java.util.UUID;
 
-public interface AnimeRepository extends ReactiveCrudRepository<Anime, Integer> {
+public interface AnimeRepository extends ReactiveCrudRepository<Anime, Integer>, AnimeStreamingRepository,
+        AnimeBatchRepository {
 
     Mono<Anime> findById(UUID id);
 
+    @Query("SELECT * FROM anime WHERE id IN (:ids)")
+    Flux<Anime> findAllByIdIn(Collection<UUID> ids);
+
+    @Query("SELECT * FROM anime ORDER BY id LIMIT :limit")
+    Flux<Anime> findPage(int limit);
+
+    @Query("SELECT * FROM anime WHERE id > :after ORDER BY id LIMIT :limit")
+    Flux<Anime> findPageAfter(UUID after, int limit);
+
+    @Query("SELECT version FROM anime_collection_version")
+    Mono<Long> findCollectionVersion();
+
+    // a range rather than LIKE :prefix, which a generic plan cannot turn into a text_pattern_ops index scan
+    @Query("SELECT * FROM anime WHERE lower(name) ~>=~ :prefix AND lower(name) ~<~ :prefixEnd "
+            + "ORDER BY lower(name) USING ~<~ LIMIT :limit")
+    Flux<Anime> searchByNamePrefix(String prefix, String prefixEnd, int limit);
+
+    @Query("SELECT * FROM anime WHERE lower(name) % :query ORDER BY similarity(lower(name), :query) DESC LIMIT :limit")
+    Flux<Anime> searchByNameSimilarity(String query, int limit);
+
+    @Query("UPDATE anime SET name = :name, version = version + 1 WHERE id = :id RETURNING version")
+    Mono<Long> updateById(UUID id, String name);
+
+    @Query("UPDATE anime SET name = :name, version = version + 1 WHERE id = :id AND version = :version RETURNING version")
+    Mono<Long> updateByIdAndVersion(UUID id, long version, String name);
+
+    @Modifying
+    @Query("DELETE FROM anime WHERE id = :id")
+    Mono<Integer> deleteById(UUID id);
+
 }
@@ -0,0 +1,55 @@
+package com.claudiodornelles.webflux.repository;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Wraps {@link AnimeRepository} so every query it returns is timed through Reactor's {@code metrics()} operator,
+ * tagged with the repository method name.
+ */
+@Component
+public class AnimeRepositoryMetricsPostProcessor implements BeanPostProcessor {
+
+    static final String METRIC_NAME = "anime.repository";
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof AnimeRepository)) {
+            return bean;
+        }
+        var proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(bean);
+        proxyFactory.addInterface(AnimeRepository.class);
+        if (bean instanceof Disposable) {
+            proxyFactory.addInterface(Disposable.class);
+        }
+        proxyFactory.addAdvice(new TimingInterceptor());
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    private static class TimingInterceptor implements MethodInterceptor {
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            var result = invocation.proceed();
+            var method = invocation.getMethod().getName();
+            if (result instanceof Mono) {
+                return ((Mono<?>) result).name(METRIC_NAME)
+                        .tag("method", method)
+                        .metrics();
+            }
+            if (result instanceof Flux) {
+                return ((Flux<?>) result).name(METRIC_NAME)
+                        .tag("method", method)
+                        .metrics();
+            }
+            return result;
+        }
+    }
+}
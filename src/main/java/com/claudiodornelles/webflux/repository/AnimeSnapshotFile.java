@@ -0,0 +1,89 @@
+package com.claudiodornelles.webflux.repository;
+
+import com.claudiodornelles.webflux.domain.Anime;
+import lombok.Value;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Binary snapshot of {@link InMemoryAnimeRepository}. A snapshot is written to a sibling temporary file and moved
+ * over the previous one, so a crash mid-write leaves the last complete snapshot in place.
+ */
+public class AnimeSnapshotFile {
+
+    private static final int MAGIC = 0x414E4D31;
+
+    private final Path path;
+
+    public AnimeSnapshotFile(Path path) {
+        this.path = path.toAbsolutePath();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    void write(Snapshot snapshot) throws IOException {
+        Files.createDirectories(path.getParent());
+        var temporary = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeLong(snapshot.getCollectionVersion());
+                out.writeInt(snapshot.getAnimes().size());
+                for (Anime anime : snapshot.getAnimes()) {
+                    out.writeLong(anime.getId().getMostSignificantBits());
+                    out.writeLong(anime.getId().getLeastSignificantBits());
+                    out.writeLong(anime.getVersion());
+                    var name = anime.getName().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(name.length);
+                    out.write(name);
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    Snapshot read() throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(path + " is not an anime snapshot");
+            }
+            var collectionVersion = in.readLong();
+            var count = in.readInt();
+            var animes = new ArrayList<Anime>(count);
+            for (int i = 0; i < count; i++) {
+                var id = new UUID(in.readLong(), in.readLong());
+                var version = in.readLong();
+                var name = new byte[in.readInt()];
+                in.readFully(name);
+                animes.add(new Anime(id, new String(name, StandardCharsets.UTF_8), version));
+            }
+            return new Snapshot(collectionVersion, animes);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Value
+    static class Snapshot {
+
+        long collectionVersion;
+
+        List<Anime> animes;
+    }
+}
@@ -0,0 +1,12 @@
+package com.claudiodornelles.webflux.repository;
+
+import com.claudiodornelles.webflux.domain.Anime;
+import reactor.core.publisher.Flux;
+
+import java.util.UUID;
+
+public interface AnimeStreamingRepository {
+
+    Flux<Anime> streamAll(UUID after, int fetchSize);
+
+}
@@ -0,0 +1,26 @@
+package com.claudiodornelles.webflux.repository;
+
+import com.claudiodornelles.webflux.domain.Anime;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class AnimeStreamingRepositoryImpl implements AnimeStreamingRepository {
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+
+    @Override
+    public Flux<Anime> streamAll(UUID after, int fetchSize) {
+        var spec = after == null
+                ? databaseClient.sql("SELECT * FROM anime ORDER BY id")
+                : databaseClient.sql("SELECT * FROM anime WHERE id > :after ORDER BY id").bind("after", after);
+        return spec.filter(statement -> statement.fetchSize(fetchSize))
+                .map((row, metadata) -> converter.read(Anime.class, row, metadata))
+                .all();
+    }
+}
@@ -0,0 +1,474 @@
+package com.claudiodornelles.webflux.repository;
+
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.domain.TimeOrderedIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.util.IdGenerator;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link AnimeRepository} kept entirely in memory, for edge nodes, tests and benchmarks that have no Postgres.
+ *
+ * <p>Rows live in a lock-free skip list ordered the way Postgres orders UUIDs, next to a sorted index on the
+ * lower-cased name and an inverted trigram index that stand in for the {@code text_pattern_ops} and {@code pg_trgm}
+ * indexes, so paging and search answer like the SQL backend. Reads never lock and return copies, so callers
+ * cannot change a stored row behind its indexes; writes to the same id are serialized through lock stripes so the
+ * indexes stay in step with the rows. With an {@link AnimeSnapshotFile} the rows are
+ * reloaded on {@link #restore()}, written periodically while they change and once more on {@link #dispose()}.
+ */
+@Slf4j
+public class InMemoryAnimeRepository implements AnimeRepository, Disposable {
+
+    private static final Comparator<UUID> UUID_ORDER = InMemoryAnimeRepository::compareUnsigned;
+    private static final UUID MIN_UUID = new UUID(0, 0);
+    private static final int STRIPES = 64;
+
+    private final ConcurrentSkipListMap<UUID, Entry> animes = new ConcurrentSkipListMap<>(UUID_ORDER);
+    private final ConcurrentSkipListMap<NameKey, Entry> byName = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Set<UUID>> byTrigram = new ConcurrentHashMap<>();
+    private final Object[] stripes = new Object[STRIPES];
+    private final AtomicLong collectionVersion = new AtomicLong();
+    private final IdGenerator idGenerator;
+    private final AnimeSnapshotFile snapshotFile;
+    private final Duration snapshotInterval;
+    private volatile long snapshotVersion;
+    private volatile Disposable snapshots = Disposables.single();
+
+    public InMemoryAnimeRepository() {
+        this(new TimeOrderedIdGenerator(), null, Duration.ZERO);
+    }
+
+    public InMemoryAnimeRepository(IdGenerator idGenerator, AnimeSnapshotFile snapshotFile, Duration snapshotInterval) {
+        this.idGenerator = idGenerator;
+        this.snapshotFile = snapshotFile;
+        this.snapshotInterval = snapshotInterval;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    public void restore() throws IOException {
+        if (snapshotFile == null) {
+            return;
+        }
+        var snapshot = snapshotFile.read();
+        if (snapshot != null) {
+            for (Anime anime : snapshot.getAnimes()) {
+                var entry = new Entry(anime);
+                animes.put(anime.getId(), entry);
+                index(null, entry);
+            }
+            collectionVersion.set(snapshot.getCollectionVersion());
+            snapshotVersion = snapshot.getCollectionVersion();
+            log.info("Restored {} animes from {}", snapshot.getAnimes().size(), snapshotFile.getPath());
+        }
+        if (!snapshotInterval.isZero() && !snapshotInterval.isNegative()) {
+            snapshots = Flux.interval(snapshotInterval, snapshotInterval, Schedulers.boundedElastic())
+                    .subscribe(tick -> snapshotIfChanged());
+        }
+    }
+
+    public void snapshot() throws IOException {
+        if (snapshotFile == null) {
+            throw new IllegalStateException("no snapshot file is configured");
+        }
+        var version = collectionVersion.get();
+        var rows = new ArrayList<Anime>(animes.size());
+        for (Entry entry : animes.values()) {
+            rows.add(entry.anime);
+        }
+        snapshotFile.write(new AnimeSnapshotFile.Snapshot(version, rows));
+        snapshotVersion = version;
+    }
+
+    @Override
+    public void dispose() {
+        snapshots.dispose();
+        snapshotIfChanged();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return snapshots.isDisposed();
+    }
+
+    private void snapshotIfChanged() {
+        if (snapshotFile == null || collectionVersion.get() == snapshotVersion) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not write anime snapshot to {}", snapshotFile.getPath(), e);
+        }
+    }
+
+    @Override
+    public Mono<Anime> findById(UUID id) {
+        return Mono.fromSupplier(() -> animeOf(animes.get(id)));
+    }
+
+    @Override
+    public Flux<Anime> findAllByIdIn(Collection<UUID> ids) {
+        return Flux.defer(() -> Flux.fromStream(ids.stream()
+                .map(animes::get)
+                .filter(Objects::nonNull)
+                .map(entry -> copyOf(entry.anime))));
+    }
+
+    @Override
+    public Flux<Anime> findPage(int limit) {
+        return Flux.defer(() -> Flux.fromIterable(animes.values()))
+                .take(limit)
+                .map(entry -> copyOf(entry.anime));
+    }
+
+    @Override
+    public Flux<Anime> findPageAfter(UUID after, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(animes.tailMap(after, false).values()))
+                .take(limit)
+                .map(entry -> copyOf(entry.anime));
+    }
+
+    @Override
+    public Mono<Long> findCollectionVersion() {
+        return Mono.fromSupplier(collectionVersion::get);
+    }
+
+    @Override
+    public Flux<Anime> searchByNamePrefix(String prefix, String prefixEnd, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(
+                        byName.subMap(new NameKey(prefix, MIN_UUID), new NameKey(prefixEnd, MIN_UUID)).values()))
+                .take(limit)
+                .map(entry -> copyOf(entry.anime));
+    }
+
+    @Override
+    public Flux<Anime> searchByNameSimilarity(String query, int limit) {
+        return Flux.defer(() -> {
+            var trigrams = Trigrams.of(query);
+            var candidates = new HashSet<UUID>();
+            for (String trigram : trigrams) {
+                var ids = byTrigram.get(trigram);
+                if (ids != null) {
+                    candidates.addAll(ids);
+                }
+            }
+            var matches = new ArrayList<Map.Entry<Entry, Double>>();
+            for (UUID id : candidates) {
+                var entry = animes.get(id);
+                if (entry != null) {
+                    var similarity = Trigrams.similarity(trigrams, entry.trigrams);
+                    if (similarity >= Trigrams.SIMILARITY_THRESHOLD) {
+                        matches.add(Map.entry(entry, similarity));
+                    }
+                }
+            }
+            matches.sort(Map.Entry.<Entry, Double>comparingByValue().reversed()
+                    .thenComparing(match -> match.getKey().anime.getId(), UUID_ORDER));
+            return Flux.fromIterable(matches)
+                    .take(limit)
+                    .map(match -> copyOf(match.getKey().anime));
+        });
+    }
+
+    @Override
+    public Mono<Long> updateById(UUID id, String name) {
+        return Mono.fromSupplier(() -> update(id, null, name));
+    }
+
+    @Override
+    public Mono<Long> updateByIdAndVersion(UUID id, long version, String name) {
+        return Mono.fromSupplier(() -> update(id, version, name));
+    }
+
+    @Override
+    public Mono<Integer> deleteById(UUID id) {
+        return Mono.fromSupplier(() -> {
+            synchronized (stripe(id)) {
+                var removed = animes.remove(id);
+                if (removed == null) {
+                    return 0;
+                }
+                unindex(removed, null);
+                collectionVersion.incrementAndGet();
+                return 1;
+            }
+        });
+    }
+
+    @Override
+    public Flux<Anime> streamAll(UUID after, int fetchSize) {
+        return Flux.defer(() -> Flux.fromIterable(after == null ? animes.values() : animes.tailMap(after, false).values()))
+                .map(entry -> copyOf(entry.anime));
+    }
+
+    @Override
+    public Flux<Anime> insertAll(List<Anime> entities) {
+        return Flux.defer(() -> {
+            for (Anime anime : entities) {
+                var entry = new Entry(copyOf(anime));
+                synchronized (stripe(anime.getId())) {
+                    if (animes.putIfAbsent(anime.getId(), entry) != null) {
+                        throw new DuplicateKeyException("anime " + anime.getId() + " already exists");
+                    }
+                    index(null, entry);
+                    collectionVersion.incrementAndGet();
+                }
+            }
+            return Flux.fromIterable(entities);
+        });
+    }
+
+    @Override
+    public <S extends Anime> Mono<S> save(S entity) {
+        return Mono.fromSupplier(() -> {
+            if (entity.isNew()) {
+                entity.setId(idGenerator.generateId());
+                entity.setVersion(0L);
+                var entry = new Entry(copyOf(entity));
+                synchronized (stripe(entity.getId())) {
+                    animes.put(entity.getId(), entry);
+                    index(null, entry);
+                    collectionVersion.incrementAndGet();
+                }
+                return entity;
+            }
+            synchronized (stripe(entity.getId())) {
+                var stored = animes.get(entity.getId());
+                if (stored == null || !stored.anime.getVersion().equals(entity.getVersion())) {
+                    throw new OptimisticLockingFailureException("version does not match for anime " + entity.getId());
+                }
+                entity.setVersion(entity.getVersion() + 1);
+                replace(stored, new Entry(copyOf(entity)));
+                collectionVersion.incrementAndGet();
+                return entity;
+            }
+        });
+    }
+
+    @Override
+    public <S extends Anime> Flux<S> saveAll(Iterable<S> entities) {
+        return Flux.fromIterable(entities).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends Anime> Flux<S> saveAll(Publisher<S> entityStream) {
+        return Flux.from(entityStream).concatMap(this::save);
+    }
+
+    @Override
+    public Mono<Anime> findById(Integer id) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Anime> findById(Publisher<Integer> id) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Integer id) {
+        return Mono.just(false);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<Integer> id) {
+        return Mono.just(false);
+    }
+
+    @Override
+    public Flux<Anime> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(animes.values()))
+                .map(entry -> copyOf(entry.anime));
+    }
+
+    @Override
+    public Flux<Anime> findAllById(Iterable<Integer> ids) {
+        return Flux.empty();
+    }
+
+    @Override
+    public Flux<Anime> findAllById(Publisher<Integer> idStream) {
+        return Flux.empty();
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(() -> (long) animes.size());
+    }
+
+    @Override
+    public Mono<Void> deleteById(Integer id) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<Integer> id) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> delete(Anime entity) {
+        return deleteById(entity.getId()).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends Integer> ids) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends Anime> entities) {
+        return Flux.fromIterable(entities)
+                .concatMap(this::delete)
+                .then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends Anime> entityStream) {
+        return Flux.from(entityStream)
+                .concatMap(this::delete)
+                .then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Flux.defer(() -> Flux.fromIterable(animes.keySet()))
+                .concatMap(this::deleteById)
+                .then();
+    }
+
+    private Long update(UUID id, Long version, String name) {
+        synchronized (stripe(id)) {
+            var stored = animes.get(id);
+            if (stored == null || version != null && stored.anime.getVersion() != version.longValue()) {
+                return null;
+            }
+            var nextVersion = stored.anime.getVersion() + 1;
+            replace(stored, new Entry(new Anime(id, name, nextVersion)));
+            collectionVersion.incrementAndGet();
+            return nextVersion;
+        }
+    }
+
+    private void replace(Entry previous, Entry next) {
+        animes.put(next.anime.getId(), next);
+        index(previous, next);
+        unindex(previous, next);
+    }
+
+    private void index(Entry previous, Entry next) {
+        var id = next.anime.getId();
+        byName.put(next.nameKey, next);
+        for (String trigram : next.trigrams) {
+            if (previous == null || !previous.trigrams.contains(trigram)) {
+                byTrigram.compute(trigram, (key, ids) -> {
+                    var postings = ids == null ? ConcurrentHashMap.<UUID>newKeySet() : ids;
+                    postings.add(id);
+                    return postings;
+                });
+            }
+        }
+    }
+
+    private void unindex(Entry previous, Entry next) {
+        var id = previous.anime.getId();
+        if (next == null || !previous.nameKey.equals(next.nameKey)) {
+            byName.remove(previous.nameKey);
+        }
+        for (String trigram : previous.trigrams) {
+            if (next == null || !next.trigrams.contains(trigram)) {
+                byTrigram.computeIfPresent(trigram, (key, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+    }
+
+    private Object stripe(UUID id) {
+        return stripes[id.hashCode() & (STRIPES - 1)];
+    }
+
+    private static Anime animeOf(Entry entry) {
+        return entry == null ? null : copyOf(entry.anime);
+    }
+
+    private static Anime copyOf(Anime anime) {
+        return new Anime(anime.getId(), anime.getName(), anime.getVersion());
+    }
+
+
+    private static int compareUnsigned(UUID left, UUID right) {
+        var mostSignificant = Long.compareUnsigned(left.getMostSignificantBits(), right.getMostSignificantBits());
+        return mostSignificant != 0
+                ? mostSignificant
+                : Long.compareUnsigned(left.getLeastSignificantBits(), right.getLeastSignificantBits());
+    }
+
+    private static final class Entry {
+
+        private final Anime anime;
+        private final NameKey nameKey;
+        private final Set<String> trigrams;
+
+        private Entry(Anime anime) {
+            this.anime = anime;
+            var lowerName = anime.getName().toLowerCase(Locale.ROOT);
+            this.nameKey = new NameKey(lowerName, anime.getId());
+            this.trigrams = Trigrams.of(lowerName);
+        }
+    }
+
+    private static final class NameKey implements Comparable<NameKey> {
+
+        private final String name;
+        private final UUID id;
+
+        private NameKey(String name, UUID id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(NameKey other) {
+            var byName = name.compareTo(other.name);
+            return byName != 0 ? byName : compareUnsigned(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof NameKey && compareTo((NameKey) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, id);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.claudiodornelles.webflux.repository;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Trigram extraction and similarity as {@code pg_trgm} defines them: each run of letters and digits is padded with
+ * two spaces in front and one behind, and similarity is shared trigrams over the union of both sets.
+ */
+final class Trigrams {
+
+    static final double SIMILARITY_THRESHOLD = 0.3;
+
+    private Trigrams() {
+    }
+
+    static Set<String> of(String lowerCaseText) {
+        var trigrams = new HashSet<String>();
+        var length = lowerCaseText.length();
+        var start = 0;
+        while (start < length) {
+            while (start < length && !Character.isLetterOrDigit(lowerCaseText.charAt(start))) {
+                start++;
+            }
+            var end = start;
+            while (end < length && Character.isLetterOrDigit(lowerCaseText.charAt(end))) {
+                end++;
+            }
+            if (end > start) {
+                var padded = "  " + lowerCaseText.substring(start, end) + " ";
+                for (int i = 0; i + 3 <= padded.length(); i++) {
+                    trigrams.add(padded.substring(i, i + 3));
+                }
+            }
+            start = end;
+        }
+        return trigrams;
+    }
+
+    static double similarity(Set<String> query, Set<String> candidate) {
+        if (query.isEmpty() || candidate.isEmpty()) {
+            return 0;
+        }
+        var shared = 0;
+        for (String trigram : query) {
+            if (candidate.contains(trigram)) {
+                shared++;
+            }
+        }
+        return (double) shared / (query.size() + candidate.size() - shared);
+    }
+}
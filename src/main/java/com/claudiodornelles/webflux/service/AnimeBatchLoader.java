@@ -0,0 +1,89 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.repository.AnimeRepository;
+import lombok.Value;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Component
+public class AnimeBatchLoader implements DisposableBean {
+
+    private final AnimeRepository animeRepository;
+    private final boolean enabled;
+    private final Sinks.Many<PendingLookup> lookups = Sinks.many().unicast().onBackpressureBuffer();
+    private final Disposable dispatcher;
+
+    public AnimeBatchLoader(AnimeRepository animeRepository, AnimeProperties animeProperties) {
+        var properties = animeProperties.getBatchLoader();
+        this.animeRepository = animeRepository;
+        this.enabled = properties.isEnabled();
+        if (enabled) {
+            this.dispatcher = lookups.asFlux()
+                    .bufferTimeout(properties.getMaxBatchSize(), properties.getWindow())
+                    .onBackpressureBuffer()
+                    .flatMap(this::dispatch, properties.getMaxConcurrentBatches())
+                    .subscribe();
+        } else {
+            this.dispatcher = null;
+        }
+    }
+
+    public Mono<Anime> load(UUID id) {
+        if (!enabled) {
+            return animeRepository.findById(id);
+        }
+        return Mono.create(sink -> {
+            var lookup = new PendingLookup(id, sink);
+            Sinks.EmitResult result;
+            while ((result = lookups.tryEmitNext(lookup)) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+                Thread.onSpinWait();
+            }
+            if (result.isFailure()) {
+                sink.error(new IllegalStateException("anime batch loader rejected lookup: " + result));
+            }
+        });
+    }
+
+    private Mono<Void> dispatch(List<PendingLookup> batch) {
+        var ids = batch.stream()
+                .map(PendingLookup::getId)
+                .collect(Collectors.toSet());
+        return animeRepository.findAllByIdIn(ids)
+                .collectMap(Anime::getId)
+                .doOnNext(found -> batch.forEach(lookup -> lookup.complete(found)))
+                .doOnError(error -> batch.forEach(lookup -> lookup.getSink().error(error)))
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    @Override
+    public void destroy() {
+        if (dispatcher != null) {
+            lookups.tryEmitComplete();
+            dispatcher.dispose();
+        }
+    }
+
+    @Value
+    private static class PendingLookup {
+
+        UUID id;
+
+        MonoSink<Anime> sink;
+
+        void complete(Map<UUID, Anime> found) {
+            sink.success(found.get(id));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.repository.AnimeBatchRepository;
+import com.claudiodornelles.webflux.repository.AnimeRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.IdGenerator;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+@Component
+@RequiredArgsConstructor
+public class AnimeBatchWriter {
+
+    private final AnimeRepository animeRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final AnimeProperties animeProperties;
+    private final IdGenerator idGenerator;
+
+    public Flux<Anime> write(List<Anime> animes) {
+        var chunks = Flux.fromIterable(animes)
+                .buffer(chunkSize());
+        if (animeProperties.getBatch().isCommitPerChunk()) {
+            return chunks.concatMap(chunk -> committed(writeChunk(chunk)));
+        }
+        return committed(chunks.concatMap(this::writeChunk));
+    }
+
+    public Flux<Anime> writeStream(Flux<Anime> animes) {
+        // a slow stream still commits what it has every max-delay instead of waiting for a full chunk; bufferTimeout
+        // fails when its timer fires while the previous chunk is still committing, so chunks queue up behind it
+        return animes.bufferTimeout(chunkSize(), animeProperties.getBatch().getMaxDelay())
+                .onBackpressureBuffer()
+                .concatMap(chunk -> committed(writeChunk(chunk)), 1);
+    }
+
+    public Flux<Anime> insert(List<Anime> animes) {
+        return committed(Flux.fromIterable(animes)
+                .buffer(chunkSize())
+                .concatMap(animeRepository::insertAll));
+    }
+
+    // a transactional flux emits rows before it commits, so hold them back until the commit has succeeded
+    private Flux<Anime> committed(Flux<Anime> writes) {
+        return transactionalOperator.transactional(writes)
+                .collectList()
+                .flatMapIterable(Function.identity());
+    }
+
+    private int chunkSize() {
+        return Math.min(animeProperties.getBatch().getChunkSize(), AnimeBatchRepository.MAX_ROWS_PER_INSERT);
+    }
+
+    private Flux<Anime> writeChunk(List<Anime> chunk) {
+        var inserts = new ArrayList<Anime>(chunk.size());
+        var updates = new ArrayList<Anime>();
+        for (var anime : chunk) {
+            if (anime.isNew()) {
+                anime.setId(idGenerator.generateId());
+                anime.setVersion(0L);
+                inserts.add(anime);
+            } else {
+                updates.add(anime);
+            }
+        }
+        if (updates.isEmpty()) {
+            return animeRepository.insertAll(inserts);
+        }
+        if (inserts.isEmpty()) {
+            return animeRepository.saveAll(updates);
+        }
+        return animeRepository.insertAll(inserts)
+                .concatWith(animeRepository.saveAll(updates));
+    }
+}
@@ -0,0 +1,67 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+@Component
+public class AnimeCache implements MeterBinder {
+
+    private final AsyncCache<UUID, Anime> cache;
+    private final LongAdder coalesced = new LongAdder();
+
+    public AnimeCache(AnimeProperties animeProperties) {
+        var properties = animeProperties.getCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTimeToLive())
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Concurrent misses for the same id share the load already in flight; those joins are counted as
+     * {@code anime.lookups.coalesced} and also show up as hits in the cache's stats.
+     */
+    public Mono<Anime> get(UUID id, Function<UUID, Mono<Anime>> loader) {
+        return Mono.defer(() -> {
+            var loading = new boolean[1];
+            var future = cache.get(id, (key, executor) -> {
+                loading[0] = true;
+                return loader.apply(key).toFuture();
+            });
+            if (!loading[0] && !future.isDone()) {
+                coalesced.increment();
+            }
+            // copy() so that a cancelled subscriber does not cancel the load shared with other callers
+            return Mono.fromFuture(future.copy());
+        });
+    }
+
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public void invalidate(UUID id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(), "anime");
+        FunctionCounter.builder("anime.lookups.coalesced", coalesced, LongAdder::doubleValue)
+                .description("findById calls that joined a lookup already in flight")
+                .register(registry);
+    }
+}
@@ -0,0 +1,103 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.domain.AnimeChange;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Broadcasts numbered create, update and delete events to any number of subscribers. The last {@code replay-size}
+ * events are kept so a subscriber can resume after a sequence number. Resuming from further back shows up as a gap
+ * in the sequence, and resuming from a number this instance never issued starts from the live events; either way the
+ * subscriber should reload instead.
+ *
+ * <p>Every subscriber drains the shared replay buffer into its own buffer of {@code subscriber-buffer} events, so a
+ * slow one never holds back the others: once its buffer is full it either loses its oldest events, again visible
+ * as a sequence gap, or is disconnected.
+ */
+@Component
+public class AnimeChangeStream implements MeterBinder {
+
+    private final Sinks.Many<AnimeChange> changes;
+    private final AnimeProperties.Changes properties;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+    private long sequence;
+
+    public AnimeChangeStream(AnimeProperties animeProperties) {
+        this.properties = animeProperties.getChanges();
+        this.changes = Sinks.many().replay().limit(properties.getReplaySize());
+    }
+
+    public Flux<AnimeChange> changes(Long since) {
+        return Flux.defer(() -> {
+            var current = currentSequence();
+            var after = since != null && since <= current ? since : current;
+            return changes.asFlux()
+                    .filter(change -> change.getSequence() > after);
+        }).transform(this::bounded)
+                .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                .doFinally(signal -> subscribers.decrementAndGet());
+    }
+
+    public void saved(Anime anime) {
+        var type = anime.getVersion() != null && anime.getVersion() > 0
+                ? AnimeChange.Type.UPDATED
+                : AnimeChange.Type.CREATED;
+        publish(type, anime.getId(), anime);
+    }
+
+    public void updated(Anime anime) {
+        publish(AnimeChange.Type.UPDATED, anime.getId(), anime);
+    }
+
+    public void deleted(UUID id) {
+        publish(AnimeChange.Type.DELETED, id, null);
+    }
+
+    private Flux<AnimeChange> bounded(Flux<AnimeChange> subscriberChanges) {
+        if (properties.getSlowSubscriber() == AnimeProperties.Changes.SlowSubscriber.DISCONNECT) {
+            return subscriberChanges.onBackpressureBuffer(properties.getSubscriberBuffer(),
+                    change -> disconnected.increment(), BufferOverflowStrategy.ERROR);
+        }
+        return subscriberChanges.onBackpressureBuffer(properties.getSubscriberBuffer(),
+                change -> dropped.increment(), BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    private synchronized long currentSequence() {
+        return sequence;
+    }
+
+    private synchronized void publish(AnimeChange.Type type, UUID id, Anime anime) {
+        // numbering and emitting under one lock keeps the replay buffer in sequence order
+        changes.tryEmitNext(new AnimeChange(++sequence, type, id, anime));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("anime.changes.subscribers", subscribers, AtomicInteger::get)
+                .description("Open anime change stream subscriptions")
+                .register(registry);
+        Gauge.builder("anime.changes.sequence", this, AnimeChangeStream::currentSequence)
+                .description("Sequence number of the last published anime change")
+                .register(registry);
+        FunctionCounter.builder("anime.changes.dropped", dropped, LongAdder::sum)
+                .description("Anime changes dropped from slow subscribers' buffers")
+                .register(registry);
+        FunctionCounter.builder("anime.changes.disconnected", disconnected, LongAdder::sum)
+                .description("Slow subscribers disconnected from the anime change stream")
+                .register(registry);
+    }
+}
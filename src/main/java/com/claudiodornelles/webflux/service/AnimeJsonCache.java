@@ -0,0 +1,89 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Keeps the JSON encoding of recently read animes so {@code GET /animes/{id}} can write the bytes as they are.
+ * The cache is bounded by the total size of the encoded bodies rather than by entry count.
+ */
+@Component
+public class AnimeJsonCache implements MeterBinder {
+
+    private final AsyncCache<UUID, Entry> cache;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public AnimeJsonCache(AnimeProperties animeProperties, ObjectMapper objectMapper) {
+        var properties = animeProperties.getJsonCache();
+        this.objectMapper = objectMapper;
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumSize().toBytes())
+                .weigher((UUID id, Entry entry) -> entry.getBytes().length)
+                .expireAfterWrite(properties.getTimeToLive())
+                .recordStats()
+                .buildAsync();
+    }
+
+    public Mono<Entry> get(UUID id, Function<UUID, Mono<Anime>> loader) {
+        if (!enabled) {
+            return loader.apply(id).map(this::encode);
+        }
+        // invalidate() drops a load that is still running, so an anime read before a write is never cached after it
+        return Mono.defer(() -> Mono.fromFuture(
+                cache.get(id, (key, executor) -> loader.apply(key).map(this::encode).toFuture()).copy()
+        ));
+    }
+
+    public void invalidate(UUID id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    private Entry encode(Anime anime) {
+        try {
+            return new Entry(anime.getVersion(), objectMapper.writeValueAsBytes(anime));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long weightedSize() {
+        return cache.synchronous().policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(), "anime-json");
+        Gauge.builder("anime.json-cache.bytes", this, AnimeJsonCache::weightedSize)
+                .description("Encoded anime bytes held by the JSON cache")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("anime.json-cache.hit-ratio", cache, c -> c.synchronous().stats().hitRate())
+                .description("Share of JSON cache lookups answered without encoding")
+                .register(registry);
+    }
+
+    @Value
+    public static class Entry {
+        Long version;
+        byte[] bytes;
+    }
+}
@@ -1,81 +1,226 @@
 package com.claudiodornelles.webflux.service;
 
+import com.claudiodornelles.webflux.config.AnimeProperties;
 import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.domain.AnimeChange;
+import com.claudiodornelles.webflux.domain.AnimePage;
 import com.claudiodornelles.webflux.exception.NotFoundException;
 import com.claudiodornelles.webflux.exception.ServiceValidationException;
+import com.claudiodornelles.webflux.exception.VersionConflictException;
 import com.claudiodornelles.webflux.repository.AnimeRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import javax.validation.ConstraintViolation;
-import javax.validation.Validation;
-import javax.validation.Validator;
-import javax.validation.ValidatorFactory;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Locale;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class AnimeService {
 
+    private static final String METRIC_NAME = "anime.service";
+
     private final AnimeRepository animeRepository;
+    private final AnimeProperties animeProperties;
+    private final AnimeCache animeCache;
+    private final AnimeJsonCache animeJsonCache;
+    private final AnimeBatchWriter animeBatchWriter;
+    private final AnimeBatchLoader animeBatchLoader;
+    private final EntityValidator entityValidator;
+    private final AnimeWriteBehindBuffer animeWriteBehindBuffer;
+    private final AnimeChangeStream animeChangeStream;
+
+    public Mono<AnimePage> findPage(UUID after, Integer limit) {
+        var pageSize = pageSize(limit);
+        var rows = after == null
+                ? animeRepository.findPage(pageSize + 1)
+                : animeRepository.findPageAfter(after, pageSize + 1);
+        return timed(rows.collectList()
+                .map(animes -> AnimePage.of(animes, pageSize)), "findPage");
+    }
+
+    public Mono<Long> collectionVersion() {
+        return timed(animeRepository.findCollectionVersion(), "collectionVersion");
+    }
+
+    public Flux<AnimeChange> changes(Long since) {
+        return animeChangeStream.changes(since);
+    }
 
-    public Flux<Anime> findAll() {
-        return animeRepository.findAll();
+    public Flux<Anime> streamAll(UUID after) {
+        var streaming = animeProperties.getStreaming();
+        return timed(animeRepository.streamAll(after, streaming.getFetchSize())
+                .limitRate(streaming.getPrefetch()), "streamAll");
     }
 
     public Mono<Anime> findById(UUID id) {
         if (id == null) {
             throw new ServiceValidationException("id should not be null");
         }
-        return animeRepository.findById(id)
-                .switchIfEmpty(Mono.error(new NotFoundException("could not find anime with id " + id)));
+        return timed(lookup(id)
+                .switchIfEmpty(Mono.error(() -> notFound(id))), "findById");
+    }
+
+    public Mono<AnimeJsonCache.Entry> findJsonById(UUID id) {
+        if (id == null) {
+            throw new ServiceValidationException("id should not be null");
+        }
+        return timed(animeJsonCache.get(id, this::lookup)
+                .switchIfEmpty(Mono.error(() -> notFound(id))), "findJsonById");
+    }
+
+    public Flux<Anime> findAllById(List<UUID> ids) {
+        if (ids.isEmpty() || ids.contains(null)) {
+            throw new ServiceValidationException("ids should not be empty or contain null");
+        }
+        if (ids.size() > animeProperties.getPagination().getMaxLimit()) {
+            throw new ServiceValidationException("cannot find more than " + animeProperties.getPagination().getMaxLimit() + " animes at once");
+        }
+        return timed(Flux.fromIterable(new LinkedHashSet<>(ids))
+                .flatMapSequential(this::lookup), "findAllById");
+    }
+
+    public Flux<Anime> search(String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new ServiceValidationException("q should not be empty");
+        }
+        var size = pageSize(limit);
+        var normalized = query.trim().toLowerCase(Locale.ROOT);
+        var prefixEnd = prefixEnd(normalized);
+        var byPrefix = prefixEnd == null
+                ? Flux.<Anime>empty()
+                : animeRepository.searchByNamePrefix(normalized, prefixEnd, size);
+        var bySimilarity = animeRepository.searchByNameSimilarity(normalized, size);
+        return timed(Flux.concat(byPrefix, bySimilarity)
+                .distinct(Anime::getId)
+                .take(size), "search");
+    }
+
+    // the least string above every string starting with prefix, in code point order, which is also UTF-8 byte order
+    private static String prefixEnd(String prefix) {
+        var codePoints = prefix.codePoints().toArray();
+        for (int i = codePoints.length - 1; i >= 0; i--) {
+            if (codePoints[i] < Character.MAX_CODE_POINT) {
+                var next = codePoints[i] + 1;
+                codePoints[i] = next == Character.MIN_SURROGATE ? Character.MAX_SURROGATE + 1 : next;
+                return new String(codePoints, 0, i + 1);
+            }
+        }
+        return null;
+    }
+
+    private Mono<Anime> lookup(UUID id) {
+        return animeCache.get(id, animeBatchLoader::load);
     }
 
-    @Transactional
     public Mono<Anime> save(Anime anime) {
-        return Mono.just(validateBeanAttributes(anime))
-                .flatMap(animeRepository::save);
+        return timed(Mono.just(entityValidator.validate(anime))
+                .flatMap(this::persist)
+                .onErrorMap(OptimisticLockingFailureException.class, AnimeService::versionConflict), "save");
     }
 
-    @Transactional
     public Flux<Anime> saveAll(List<Anime> animes) {
-        return animeRepository.saveAll(
-                animes.stream()
-                        .map(this::validateBeanAttributes)
-                        .collect(Collectors.toList())
-        );
+        return timed(animeBatchWriter.write(entityValidator.validateAll(animes))
+                .doOnNext(this::saved)
+                .onErrorMap(OptimisticLockingFailureException.class, AnimeService::versionConflict), "saveAll");
+    }
+
+    public Flux<Anime> saveStream(Flux<Anime> animes) {
+        return timed(animeBatchWriter.writeStream(animes.map(entityValidator::validate))
+                .doOnNext(this::saved)
+                .onErrorMap(OptimisticLockingFailureException.class, AnimeService::versionConflict), "saveStream");
     }
 
     public Mono<Void> update(Anime anime) {
         if (anime.getId() == null) {
             throw new ServiceValidationException("id should not be null");
         }
-        return findById(anime.getId())
-                .map(entityFound -> anime)
-                .flatMap(animeRepository::save)
-                .then();
+        entityValidator.validate(anime);
+        var id = anime.getId();
+        var expectedVersion = anime.getVersion();
+        var updated = expectedVersion == null
+                ? animeRepository.updateById(id, anime.getName())
+                : animeRepository.updateByIdAndVersion(id, expectedVersion, anime.getName());
+        return timed(updated
+                .doOnNext(version -> animeChangeStream.updated(new Anime(id, anime.getName(), version)))
+                .switchIfEmpty(Mono.defer(() -> updateFailure(id, expectedVersion)))
+                .doFinally(signal -> invalidate(id))
+                .then(), "update");
     }
 
     public Mono<Void> delete(UUID id) {
-        return findById(id)
-                .flatMap(animeRepository::delete)
-                .then();
+        if (id == null) {
+            throw new ServiceValidationException("id should not be null");
+        }
+        return timed(animeRepository.deleteById(id)
+                .filter(affectedRows -> affectedRows > 0)
+                .doOnNext(affectedRows -> animeChangeStream.deleted(id))
+                .switchIfEmpty(Mono.error(() -> notFound(id)))
+                .doFinally(signal -> invalidate(id))
+                .then(), "delete");
     }
 
-    private <T> T validateBeanAttributes(T bean) {
-        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
-            Validator validator = factory.getValidator();
-            Set<ConstraintViolation<T>> violations = validator.validate(bean);
-            if (!violations.isEmpty()) {
-                throw new ServiceValidationException(violations.iterator().next().getMessage());
-            }
+    private Mono<Anime> persist(Anime anime) {
+        if (anime.isNew() && animeWriteBehindBuffer.isEnabled()) {
+            return animeWriteBehindBuffer.save(anime, this::saved);
+        }
+        return animeRepository.save(anime)
+                .doOnNext(this::saved);
+    }
+
+    private void saved(Anime anime) {
+        invalidate(anime.getId());
+        animeChangeStream.saved(anime);
+    }
+
+    private void invalidate(UUID id) {
+        animeCache.invalidate(id);
+        animeJsonCache.invalidate(id);
+    }
+
+    private static <T> Mono<T> timed(Mono<T> mono, String method) {
+        return mono.name(METRIC_NAME)
+                .tag("method", method)
+                .metrics();
+    }
+
+    private static <T> Flux<T> timed(Flux<T> flux, String method) {
+        return flux.name(METRIC_NAME)
+                .tag("method", method)
+                .metrics();
+    }
+
+    private Mono<Long> updateFailure(UUID id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.error(notFound(id));
+        }
+        return animeRepository.findById(id)
+                .flatMap(current -> Mono.<Long>error(new VersionConflictException(
+                        "anime " + id + " is at version " + current.getVersion() + ", not " + expectedVersion)))
+                .switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    private static VersionConflictException versionConflict(OptimisticLockingFailureException exception) {
+        return new VersionConflictException(exception.getMessage());
+    }
+
+    private static NotFoundException notFound(UUID id) {
+        return new NotFoundException("could not find anime with id " + id);
+    }
+
+    private int pageSize(Integer limit) {
+        var pagination = animeProperties.getPagination();
+        if (limit == null) {
+            return pagination.getDefaultLimit();
+        }
+        if (limit < 1) {
+            throw new ServiceValidationException("limit should be greater than zero");
         }
-        return bean;
+        return Math.min(limit, pagination.getMaxLimit());
     }
 }
@@ -0,0 +1,214 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.util.IdGenerator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Buffers new animes and inserts them in batches once {@code max-batch-size} of them are queued or every
+ * {@code flush-interval}. With {@code ack: durable} a save completes after its batch is committed; with
+ * {@code ack: enqueue} it completes as soon as it is queued, so a failed batch is only logged and counted. Either way
+ * the {@code onCommit} callback of a save only runs once its batch is committed.
+ *
+ * <p>At most {@code capacity} animes are queued or being inserted. A save that finds the buffer full waits for the
+ * next batch to finish instead of queueing more, and fails with {@link ServiceUnavailableException} after
+ * {@code max-enqueue-wait}.
+ */
+@Slf4j
+@Component
+public class AnimeWriteBehindBuffer implements DisposableBean, MeterBinder {
+
+    private final AnimeBatchWriter animeBatchWriter;
+    private final IdGenerator idGenerator;
+    private final AnimeProperties.WriteBehind properties;
+    private final Queue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final LongAdder lostWrites = new LongAdder();
+    private final Disposable ticker;
+    private volatile Sinks.Empty<Void> nextFlush = Sinks.empty();
+
+    public AnimeWriteBehindBuffer(AnimeBatchWriter animeBatchWriter, IdGenerator idGenerator,
+                                  AnimeProperties animeProperties) {
+        this.animeBatchWriter = animeBatchWriter;
+        this.idGenerator = idGenerator;
+        this.properties = animeProperties.getWriteBehind();
+        this.ticker = properties.isEnabled()
+                ? Flux.interval(properties.getFlushInterval()).subscribe(tick -> flush())
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public Mono<Anime> save(Anime anime, Consumer<? super Anime> onCommit) {
+        return Mono.defer(() -> enqueueOrAwaitFlush(anime, onCommit,
+                System.nanoTime() + properties.getMaxEnqueueWait().toNanos()));
+    }
+
+    private Mono<Anime> enqueueOrAwaitFlush(Anime anime, Consumer<? super Anime> onCommit, long deadline) {
+        // capture the flush to wait for before trying, so a flush finishing in between is not missed
+        var flushed = nextFlush;
+        if (tryReserve()) {
+            anime.setId(idGenerator.generateId());
+            anime.setVersion(0L);
+            if (properties.getAck() == AnimeProperties.WriteBehind.Ack.ENQUEUE) {
+                enqueue(new PendingWrite(anime, null, onCommit));
+                return Mono.just(anime);
+            }
+            var committed = Sinks.<Anime>one();
+            enqueue(new PendingWrite(anime, committed, onCommit));
+            return committed.asMono();
+        }
+        var remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return Mono.error(this::bufferFull);
+        }
+        flush();
+        return flushed.asMono()
+                .timeout(Duration.ofNanos(remaining))
+                .onErrorMap(TimeoutException.class, timeout -> bufferFull())
+                .then(Mono.defer(() -> enqueueOrAwaitFlush(anime, onCommit, deadline)));
+    }
+
+    private boolean tryReserve() {
+        int current;
+        while ((current = reserved.get()) < properties.getCapacity()) {
+            if (reserved.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ServiceUnavailableException bufferFull() {
+        return new ServiceUnavailableException("write-behind buffer stayed full for " + properties.getMaxEnqueueWait());
+    }
+
+    private void enqueue(PendingWrite write) {
+        queue.offer(write);
+        if (queued.incrementAndGet() >= properties.getMaxBatchSize()) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        var batch = new ArrayList<PendingWrite>(Math.min(queued.get(), properties.getMaxBatchSize()));
+        PendingWrite write;
+        while (batch.size() < properties.getMaxBatchSize() && (write = queue.poll()) != null) {
+            batch.add(write);
+        }
+        if (batch.isEmpty()) {
+            flushing.set(false);
+            return;
+        }
+        queued.addAndGet(-batch.size());
+        var animes = batch.stream()
+                .map(PendingWrite::getAnime)
+                .collect(Collectors.toList());
+        animeBatchWriter.insert(animes)
+                .then()
+                .subscribe(null, error -> completeFlush(batch, error), () -> completeFlush(batch, null));
+    }
+
+    private void completeFlush(List<PendingWrite> batch, Throwable error) {
+        if (error != null && properties.getAck() == AnimeProperties.WriteBehind.Ack.ENQUEUE) {
+            lostWrites.add(batch.size());
+            log.error("Lost {} acknowledged anime writes", batch.size(), error);
+        }
+        batch.forEach(write -> write.complete(error));
+        reserved.addAndGet(-batch.size());
+        var finished = nextFlush;
+        nextFlush = Sinks.empty();
+        flushing.set(false);
+        finished.tryEmitEmpty();
+        if (queued.get() >= properties.getMaxBatchSize()) {
+            flush();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (ticker == null) {
+            return;
+        }
+        ticker.dispose();
+        while (reserved.get() > 0) {
+            var flushed = nextFlush;
+            flush();
+            try {
+                flushed.asMono().block(properties.getMaxEnqueueWait());
+            } catch (IllegalStateException e) {
+                log.warn("Gave up flushing {} buffered anime writes on shutdown", reserved.get());
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("anime.write-behind.queued", queued, AtomicInteger::get)
+                .description("Animes waiting in the write-behind buffer for their batch")
+                .register(registry);
+        Gauge.builder("anime.write-behind.reserved", reserved, AtomicInteger::get)
+                .description("Write-behind buffer slots held by queued or in-flight animes")
+                .register(registry);
+        FunctionCounter.builder("anime.write-behind.lost", lostWrites, LongAdder::sum)
+                .description("Enqueue-acknowledged animes whose batch insert failed")
+                .register(registry);
+    }
+
+    @Value
+    private static class PendingWrite {
+
+        Anime anime;
+
+        Sinks.One<Anime> committed;
+
+        Consumer<? super Anime> onCommit;
+
+        void complete(Throwable error) {
+            if (error == null) {
+                onCommit.accept(anime);
+            }
+            if (committed == null) {
+                return;
+            }
+            if (error == null) {
+                committed.tryEmitValue(anime);
+            } else {
+                committed.tryEmitError(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.exception.ServiceValidationException;
+import com.claudiodornelles.webflux.exception.ServiceValidationException.Violation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Validates entities with the application's shared {@link Validator}, whose factory keeps the constraint metadata of
+ * each class after its first use. Classes without any constraint are remembered and skipped.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityValidator {
+
+    private final Validator validator;
+
+    private final ClassValue<Boolean> constrained = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return validator.getConstraintsForClass(type).isBeanConstrained();
+        }
+    };
+
+    public <T> T validate(T entity) {
+        var violations = new ArrayList<Violation>();
+        collectViolations(entity, "", violations);
+        throwIfInvalid(violations);
+        return entity;
+    }
+
+    public <T> List<T> validateAll(List<T> entities) {
+        var violations = new ArrayList<Violation>();
+        for (int i = 0; i < entities.size(); i++) {
+            collectViolations(entities.get(i), "[" + i + "].", violations);
+        }
+        throwIfInvalid(violations);
+        return entities;
+    }
+
+    private <T> void collectViolations(T entity, String prefix, List<Violation> violations) {
+        if (!constrained.get(entity.getClass())) {
+            return;
+        }
+        for (ConstraintViolation<T> violation : validator.validate(entity)) {
+            violations.add(new Violation(prefix + violation.getPropertyPath(), violation.getMessage()));
+        }
+    }
+
+    private static void throwIfInvalid(List<Violation> violations) {
+        if (violations.isEmpty()) {
+            return;
+        }
+        var message = violations.stream()
+                .map(Violation::getMessage)
+                .distinct()
+                .collect(Collectors.joining(", "));
+        throw new ServiceValidationException(message, List.copyOf(violations));
+    }
+}
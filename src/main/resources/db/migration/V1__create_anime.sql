@@ -0,0 +1,5 @@
+CREATE TABLE IF NOT EXISTS anime
+(
+    id   UUID PRIMARY KEY,
+    name VARCHAR(255) NOT NULL
+);
@@ -0,0 +1,5 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS anime_name_prefix_idx ON anime (lower(name) text_pattern_ops);
+
+CREATE INDEX IF NOT EXISTS anime_name_trgm_idx ON anime USING gin (lower(name) gin_trgm_ops);
@@ -0,0 +1,44 @@
+ALTER TABLE anime
+    ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- a row rather than a sequence, so readers only see a new version once the write that bumped it commits
+CREATE TABLE anime_collection_version
+(
+    singleton BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (singleton),
+    version   BIGINT NOT NULL
+);
+
+INSERT INTO anime_collection_version (version)
+VALUES (0);
+
+CREATE OR REPLACE FUNCTION increment_anime_collection_version() RETURNS trigger AS
+$$
+BEGIN
+    IF EXISTS(SELECT 1 FROM changed_rows) THEN
+        UPDATE anime_collection_version SET version = version + 1;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- one bump per statement that changed rows; transition tables need a trigger per event
+CREATE TRIGGER anime_collection_version_insert_trigger
+    AFTER INSERT
+    ON anime
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION increment_anime_collection_version();
+
+CREATE TRIGGER anime_collection_version_update_trigger
+    AFTER UPDATE
+    ON anime
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION increment_anime_collection_version();
+
+CREATE TRIGGER anime_collection_version_delete_trigger
+    AFTER DELETE
+    ON anime
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION increment_anime_collection_version();
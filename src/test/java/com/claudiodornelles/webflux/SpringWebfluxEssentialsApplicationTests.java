@@ -2,8 +2,11 @@ package com.claudiodornelles.webflux;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
-@SpringBootTest
+// the in-memory profile skips R2DBC and Flyway, so the context starts without a database
+@SpringBootTest(properties = "anime.in-memory.snapshot-path=")
+@ActiveProfiles("in-memory")
 class SpringWebfluxEssentialsApplicationTests {
 
     @Test
@@ -0,0 +1,44 @@
+package com.claudiodornelles.webflux.config;
+
+import com.claudiodornelles.webflux.exception.NotFoundException;
+import com.claudiodornelles.webflux.exception.ServiceValidationException;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tags;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class FlowOutcomeMeterFilterTest {
+
+    private final FlowOutcomeMeterFilter filter = new FlowOutcomeMeterFilter();
+
+    @Test
+    void shouldTagCompletedFlowsAsSuccess() {
+        Assertions.assertEquals("success", outcome("anime.service.flow.duration", "completedEmpty", ""));
+    }
+
+    @Test
+    void shouldTagKnownExceptionsBySimpleName() {
+        Assertions.assertEquals("NotFoundException",
+                outcome("anime.http.flow.duration", "error", NotFoundException.class.getName()));
+        Assertions.assertEquals("ServiceValidationException",
+                outcome("anime.http.flow.duration", "error", ServiceValidationException.class.getName()));
+    }
+
+    @Test
+    void shouldTagOtherExceptionsAsError() {
+        Assertions.assertEquals("error",
+                outcome("anime.repository.flow.duration", "error", IllegalStateException.class.getName()));
+    }
+
+    @Test
+    void shouldIgnoreOtherMeters() {
+        var id = new Meter.Id("reactor.flow.duration", Tags.of("status", "completed"), null, null, Meter.Type.TIMER);
+
+        Assertions.assertNull(filter.map(id).getTag("outcome"));
+    }
+
+    private String outcome(String name, String status, String exception) {
+        var id = new Meter.Id(name, Tags.of("status", status, "exception", exception), null, null, Meter.Type.TIMER);
+        return filter.map(id).getTag("outcome");
+    }
+}
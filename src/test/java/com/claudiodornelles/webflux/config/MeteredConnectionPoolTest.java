@@ -0,0 +1,63 @@
+package com.claudiodornelles.webflux.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.R2dbcTimeoutException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(SpringExtension.class)
+class MeteredConnectionPoolTest {
+
+    @Mock
+    private ConnectionPool poolMock;
+
+    @Mock
+    private Connection connectionMock;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private MeteredConnectionPool connectionPool;
+
+    @BeforeEach
+    void setUp() {
+        connectionPool = new MeteredConnectionPool(poolMock);
+        connectionPool.bindTo(registry);
+    }
+
+    @Test
+    void shouldTimeConnectionAcquisition() {
+        Mockito.when(poolMock.create())
+                .thenReturn(Mono.just(connectionMock));
+
+        StepVerifier.create(connectionPool.create())
+                .expectSubscription()
+                .expectNext(connectionMock)
+                .verifyComplete();
+
+        Assertions.assertEquals(1, registry.get("anime.r2dbc.pool.acquire").timer().count());
+    }
+
+    @Test
+    void shouldCountAcquireTimeouts() {
+        Mockito.when(poolMock.create())
+                .thenReturn(Mono.error(new R2dbcTimeoutException("Connection acquisition timed out")));
+
+        StepVerifier.create(connectionPool.create())
+                .expectSubscription()
+                .expectError(R2dbcTimeoutException.class)
+                .verify();
+
+        Assertions.assertEquals(1, connectionPool.acquireTimeoutCount());
+        Assertions.assertEquals(1, registry.get("anime.r2dbc.pool.acquire.timeouts").functionCounter().count());
+        Assertions.assertEquals(0, registry.get("anime.r2dbc.pool.acquire").timer().count());
+    }
+}
@@ -0,0 +1,102 @@
+package com.claudiodornelles.webflux.controller;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+class AimdLimiterTest {
+
+    private static final long FAST = Duration.ofMillis(1).toNanos();
+    private static final long SLOW = Duration.ofSeconds(1).toNanos();
+
+    private static final Duration WINDOW = Duration.ofMillis(100);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AimdLimiter limiter = new AimdLimiter(
+            new AnimeProperties.ConcurrencyLimit.Limit(8, 2, 10, WINDOW, 0.5), clock::get);
+
+    @Test
+    void shouldRejectRequestsOverTheLimit() {
+        for (int i = 0; i < 8; i++) {
+            Assertions.assertTrue(limiter.tryAcquire());
+        }
+
+        Assertions.assertFalse(limiter.tryAcquire());
+        Assertions.assertEquals(8, limiter.inFlight());
+        Assertions.assertEquals(1, limiter.rejected());
+    }
+
+    @Test
+    void shouldGrowTheLimitOnFastResponsesUpToTheMaximum() {
+        for (int i = 0; i < 3; i++) {
+            fillAndRelease(FAST);
+        }
+
+        Assertions.assertEquals(10, limiter.limit());
+        Assertions.assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void shouldNotGrowTheLimitWhileMostOfItIsUnused() {
+        limiter.tryAcquire();
+        limiter.release(FAST);
+
+        Assertions.assertEquals(8, limiter.limit());
+    }
+
+    @Test
+    void shouldShrinkTheLimitOnSlowResponsesDownToTheMinimum() {
+        for (int expected : new int[]{4, 2, 2}) {
+            limiter.tryAcquire();
+            limiter.release(SLOW);
+            Assertions.assertEquals(expected, limiter.limit());
+            clock.addAndGet(WINDOW.toNanos());
+        }
+    }
+
+    @Test
+    void shouldBackOffOnlyOncePerWindowForABurstOfSlowResponses() {
+        fillAndRelease(SLOW);
+        Assertions.assertEquals(4, limiter.limit());
+
+        clock.addAndGet(WINDOW.toNanos() - 1);
+        fillAndRelease(SLOW);
+        Assertions.assertEquals(4, limiter.limit());
+
+        clock.incrementAndGet();
+        fillAndRelease(SLOW);
+        Assertions.assertEquals(2, limiter.limit());
+    }
+
+    @Test
+    void shouldShrinkTheLimitOnDropsHoweverFastTheyFail() {
+        limiter.tryAcquire();
+        limiter.drop();
+
+        Assertions.assertEquals(4, limiter.limit());
+        Assertions.assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void shouldLeaveTheLimitAloneForUnsampledReleases() {
+        limiter.tryAcquire();
+        limiter.release();
+
+        Assertions.assertEquals(8, limiter.limit());
+        Assertions.assertEquals(0, limiter.inFlight());
+    }
+
+    private void fillAndRelease(long latencyNanos) {
+        var acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(latencyNanos);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.claudiodornelles.webflux.controller;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.exception.NotFoundException;
+import com.claudiodornelles.webflux.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+class AnimeConcurrencyLimitFilterTest {
+
+    private final AnimeProperties animeProperties = new AnimeProperties();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final Sinks.Empty<Void> pending = Sinks.empty();
+
+    private final WebFilterChain pendingChain = exchange -> pending.asMono();
+
+    private AnimeConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        var limits = animeProperties.getConcurrencyLimit();
+        limits.getRead().setInitialLimit(1);
+        limits.getRead().setMinLimit(1);
+        limits.getWrite().setInitialLimit(1);
+        limits.getWrite().setMinLimit(1);
+        filter = new AnimeConcurrencyLimitFilter(animeProperties);
+        filter.bindTo(registry);
+    }
+
+    @Test
+    void shouldRejectReadsOverTheLimitWithRetryAfter() {
+        filter.filter(get("/animes/1"), pendingChain).subscribe();
+        var rejected = get("/animes/2");
+
+        StepVerifier.create(filter.filter(rejected, pendingChain))
+                .expectError(ServiceUnavailableException.class)
+                .verify();
+
+        Assertions.assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        Assertions.assertEquals(1, registry.get("anime.concurrency.rejected").tag("type", "read").functionCounter().count());
+        Assertions.assertEquals(1, registry.get("anime.concurrency.in-flight").tag("type", "read").gauge().value());
+    }
+
+    @Test
+    void shouldLimitReadsAndWritesSeparately() {
+        filter.filter(get("/animes/1"), pendingChain).subscribe();
+        var write = MockServerWebExchange.from(MockServerHttpRequest.post("/animes"));
+
+        StepVerifier.create(filter.filter(write, exchange -> Mono.empty()))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReleaseThePermitWhenTheResponseCompletes() {
+        filter.filter(get("/animes/1"), pendingChain).subscribe();
+        pending.tryEmitEmpty();
+
+        StepVerifier.create(filter.filter(get("/animes/2"), exchange -> Mono.empty()))
+                .verifyComplete();
+        Assertions.assertEquals(0, registry.get("anime.concurrency.in-flight").tag("type", "read").gauge().value());
+    }
+
+    @Test
+    void shouldNotLimitTheChangeStreamOrOtherPaths() {
+        filter.filter(get("/animes/1"), pendingChain).subscribe();
+
+        StepVerifier.create(filter.filter(get("/animes/changes"), exchange -> Mono.empty()))
+                .verifyComplete();
+        StepVerifier.create(filter.filter(get("/actuator/health"), exchange -> Mono.empty()))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldCountServerErrorsAsDrops() {
+        var filter = newFilterWithReadLimit(10);
+
+        StepVerifier.create(filter.filter(get("/animes/1"), exchange -> Mono.error(new IllegalStateException("boom"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+        Assertions.assertEquals(9, readLimit());
+    }
+
+    @Test
+    void shouldCountServerErrorStatusesAsDrops() {
+        var filter = newFilterWithReadLimit(10);
+
+        StepVerifier.create(filter.filter(get("/animes/1"), exchange -> {
+                    exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
+                    return Mono.empty();
+                }))
+                .verifyComplete();
+        Assertions.assertEquals(9, readLimit());
+    }
+
+    @Test
+    void shouldNotCountClientErrorsAsDrops() {
+        var filter = newFilterWithReadLimit(10);
+
+        StepVerifier.create(filter.filter(get("/animes/1"), exchange -> Mono.error(new NotFoundException("missing"))))
+                .expectError(NotFoundException.class)
+                .verify();
+
+        Assertions.assertEquals(10, readLimit());
+    }
+
+    private AnimeConcurrencyLimitFilter newFilterWithReadLimit(int limit) {
+        var read = animeProperties.getConcurrencyLimit().getRead();
+        read.setInitialLimit(limit);
+        read.setLatencyThreshold(Duration.ofMinutes(1));
+        var filter = new AnimeConcurrencyLimitFilter(animeProperties);
+        registry.clear();
+        filter.bindTo(registry);
+        return filter;
+    }
+
+    private double readLimit() {
+        return registry.get("anime.concurrency.limit").tag("type", "read").gauge().value();
+    }
+
+    private static MockServerWebExchange get(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+}
@@ -1,6 +1,11 @@
 package com.claudiodornelles.webflux.controller;
 
 import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.domain.AnimePage;
+import com.claudiodornelles.webflux.exception.PreconditionFailedException;
+import com.claudiodornelles.webflux.exception.ServiceValidationException;
+import com.claudiodornelles.webflux.exception.VersionConflictException;
+import com.claudiodornelles.webflux.service.AnimeJsonCache;
 import com.claudiodornelles.webflux.service.AnimeService;
 import com.claudiodornelles.webflux.util.AnimeCreator;
 import org.junit.jupiter.api.Assertions;
@@ -10,6 +15,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import reactor.blockhound.BlockHound;
 import reactor.blockhound.BlockingOperationError;
@@ -18,6 +28,7 @@ import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.FutureTask;
@@ -59,26 +70,127 @@ class AnimeControllerTest {
 
     @Test
     void shouldFindAll() {
-        Mockito.when(serviceMock.findAll())
+        Mockito.when(serviceMock.collectionVersion())
+                .thenReturn(Mono.just(7L));
+        Mockito.when(serviceMock.findPage(null, null))
+                .thenReturn(Mono.just(new AnimePage(List.of(anime), null)));
+
+        StepVerifier.create(controller.findAll(null, null, MockServerWebExchange.from(MockServerHttpRequest.get("/animes"))))
+                .expectSubscription()
+                .expectNextMatches(response -> response.getStatusCode() == HttpStatus.OK
+                        && response.getBody().equals(List.of(anime))
+                        && response.getHeaders().getETag().equals("\"7\"")
+                        && !response.getHeaders().containsKey(HttpHeaders.LINK))
+                .verifyComplete();
+
+        Mockito.verify(serviceMock, Mockito.times(1))
+                .findPage(null, null);
+    }
+
+    @Test
+    void shouldNotReadPageWhenCollectionIsNotModified() {
+        Mockito.when(serviceMock.collectionVersion())
+                .thenReturn(Mono.just(7L));
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/animes")
+                .ifNoneMatch("\"7\""));
+
+        StepVerifier.create(controller.findAll(null, null, exchange))
+                .expectSubscription()
+                .expectNextMatches(response -> response.getStatusCode() == HttpStatus.NOT_MODIFIED
+                        && response.getBody() == null)
+                .verifyComplete();
+
+        Mockito.verify(serviceMock, Mockito.never())
+                .findPage(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void shouldLinkToNextPageWhenThereAreMoreAnimes() {
+        Mockito.when(serviceMock.collectionVersion())
+                .thenReturn(Mono.just(7L));
+        Mockito.when(serviceMock.findPage(null, 1))
+                .thenReturn(Mono.just(new AnimePage(List.of(anime), anime.getId())));
+
+        StepVerifier.create(controller.findAll(null, 1, MockServerWebExchange.from(MockServerHttpRequest.get("/animes?limit=1"))))
+                .expectSubscription()
+                .expectNextMatches(response -> response.getHeaders().getFirst(HttpHeaders.LINK)
+                        .equals("</animes?limit=1&after=" + anime.getId() + ">; rel=\"next\""))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldStreamAll() {
+        Mockito.when(serviceMock.streamAll(null))
                 .thenReturn(Flux.just(anime));
 
-        StepVerifier.create(controller.findAll())
+        StepVerifier.create(controller.streamAll(null))
                 .expectSubscription()
                 .expectNext(anime)
                 .verifyComplete();
 
         Mockito.verify(serviceMock, Mockito.times(1))
-                .findAll();
+                .streamAll(null);
+    }
+
+    @Test
+    void shouldSearch() {
+        Mockito.when(serviceMock.search("tensei", 5))
+                .thenReturn(Flux.just(anime));
+
+        StepVerifier.create(controller.search("tensei", 5))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        Mockito.verify(serviceMock, Mockito.times(1))
+                .search("tensei", 5);
+    }
+
+    @Test
+    void shouldFindJsonByIdWithoutAcceptHeader() {
+        var json = "{}".getBytes(StandardCharsets.UTF_8);
+        Mockito.when(serviceMock.findJsonById(Mockito.any(UUID.class)))
+                .thenReturn(Mono.just(new AnimeJsonCache.Entry(3L, json)));
+
+        StepVerifier.create(controller.findById(UUID.randomUUID(),
+                        MockServerWebExchange.from(MockServerHttpRequest.get("/animes/1"))))
+                .expectSubscription()
+                .expectNextMatches(response -> response.getBody() == json
+                        && response.getHeaders().getETag().equals("\"3\"")
+                        && MediaType.APPLICATION_JSON.equals(response.getHeaders().getContentType()))
+                .verifyComplete();
+
+        Mockito.verify(serviceMock, Mockito.never())
+                .findById(Mockito.any(UUID.class));
+    }
+
+    @Test
+    void shouldFindJsonByIdForWildcardAccept() {
+        var json = "{}".getBytes(StandardCharsets.UTF_8);
+        Mockito.when(serviceMock.findJsonById(Mockito.any(UUID.class)))
+                .thenReturn(Mono.just(new AnimeJsonCache.Entry(3L, json)));
+
+        StepVerifier.create(controller.findById(UUID.randomUUID(),
+                        MockServerWebExchange.from(MockServerHttpRequest.get("/animes/1").accept(MediaType.ALL))))
+                .expectSubscription()
+                .expectNextMatches(response -> response.getBody() == json
+                        && MediaType.APPLICATION_JSON.equals(response.getHeaders().getContentType()))
+                .verifyComplete();
+
+        Mockito.verify(serviceMock, Mockito.never())
+                .findById(Mockito.any(UUID.class));
     }
 
     @Test
     void shouldFindById() {
         Mockito.when(serviceMock.findById(Mockito.any(UUID.class)))
-                .thenReturn(Mono.just(anime));
+                .thenReturn(Mono.just(anime.withVersion(3L)));
 
-        StepVerifier.create(controller.findById(UUID.randomUUID()))
+        StepVerifier.create(controller.findById(UUID.randomUUID(),
+                        MockServerWebExchange.from(MockServerHttpRequest.get("/animes/1").accept(MediaType.APPLICATION_CBOR))))
                 .expectSubscription()
-                .expectNext(anime)
+                .expectNextMatches(response -> response.getBody().equals(anime.withVersion(3L))
+                        && response.getHeaders().getETag().equals("\"3\""))
                 .verifyComplete();
 
         Mockito.verify(serviceMock, Mockito.times(1))
@@ -117,6 +229,23 @@ class AnimeControllerTest {
                 .saveAll(List.of(animeToBeSaved, animeToBeSaved));
     }
 
+    @Test
+    void shouldImportAnimes() {
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+        Flux<Anime> animes = Flux.just(animeToBeSaved, animeToBeSaved);
+
+        Mockito.when(serviceMock.saveStream(animes))
+                .thenReturn(animes);
+
+        StepVerifier.create(controller.importAnimes(animes))
+                .expectSubscription()
+                .expectNext(animeToBeSaved, animeToBeSaved)
+                .verifyComplete();
+
+        Mockito.verify(serviceMock, Mockito.times(1))
+                .saveStream(animes);
+    }
+
     @Test
     void shouldDeleteAnime() {
         Mockito.when(serviceMock.delete(Mockito.any(UUID.class)))
@@ -137,7 +266,7 @@ class AnimeControllerTest {
         Mockito.when(serviceMock.update(validUpdatedAnime))
                 .thenReturn(Mono.empty());
 
-        StepVerifier.create(controller.update(AnimeCreator.ANIME_ID_1, validUpdatedAnime))
+        StepVerifier.create(controller.update(AnimeCreator.ANIME_ID_1, validUpdatedAnime, null))
                 .expectSubscription()
                 .verifyComplete();
 
@@ -145,4 +274,42 @@ class AnimeControllerTest {
                 .update(validUpdatedAnime);
     }
 
+    @Test
+    void shouldUpdateAnimeWithVersionFromIfMatch() {
+        Anime validUpdatedAnime = AnimeCreator.createValidUpdatedAnime();
+
+        Mockito.when(serviceMock.update(validUpdatedAnime.withVersion(4L)))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(controller.update(AnimeCreator.ANIME_ID_1, validUpdatedAnime, "\"4\""))
+                .expectSubscription()
+                .verifyComplete();
+
+        Mockito.verify(serviceMock, Mockito.times(1))
+                .update(validUpdatedAnime.withVersion(4L));
+    }
+
+    @Test
+    void shouldFailPreconditionWhenVersionDoesNotMatchIfMatch() {
+        Anime validUpdatedAnime = AnimeCreator.createValidUpdatedAnime();
+
+        Mockito.when(serviceMock.update(validUpdatedAnime.withVersion(4L)))
+                .thenReturn(Mono.error(new VersionConflictException("anime is at version 5, not 4")));
+
+        StepVerifier.create(controller.update(AnimeCreator.ANIME_ID_1, validUpdatedAnime, "\"4\""))
+                .expectSubscription()
+                .expectError(PreconditionFailedException.class)
+                .verify();
+    }
+
+    @Test
+    void shouldRejectIfMatchThatIsNotAStrongVersionETag() {
+        StepVerifier.create(controller.update(AnimeCreator.ANIME_ID_1, AnimeCreator.createValidUpdatedAnime(), "W/\"4\""))
+                .expectSubscription()
+                .expectError(ServiceValidationException.class)
+                .verify();
+
+        Mockito.verifyNoInteractions(serviceMock);
+    }
+
 }
\ No newline at end of file
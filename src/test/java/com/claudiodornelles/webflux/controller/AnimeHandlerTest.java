@@ -0,0 +1,257 @@
+package com.claudiodornelles.webflux.controller;
+
+import com.claudiodornelles.webflux.config.BinaryCodecConfiguration;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.domain.AnimePage;
+import com.claudiodornelles.webflux.exception.PreconditionFailedException;
+import com.claudiodornelles.webflux.exception.ServiceValidationException;
+import com.claudiodornelles.webflux.exception.VersionConflictException;
+import com.claudiodornelles.webflux.service.AnimeJsonCache;
+import com.claudiodornelles.webflux.service.AnimeService;
+import com.claudiodornelles.webflux.util.AnimeCreator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.blockhound.BlockHound;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+class AnimeHandlerTest {
+
+    @InjectMocks
+    private AnimeHandler handler;
+
+    @Mock
+    private AnimeService serviceMock;
+
+    private WebTestClient testClient;
+
+    private final Anime anime = AnimeCreator.createValidAnime();
+
+    @BeforeAll
+    static void beforeAll() {
+        BlockHound.install();
+    }
+
+    @BeforeEach
+    void setUp() {
+        testClient = WebTestClient.bindToRouterFunction(new AnimeRouter().animeRoutes(handler)).build();
+    }
+
+    @Test
+    void shouldFindAllWithETagAndNextLink() {
+        Mockito.when(serviceMock.collectionVersion())
+                .thenReturn(Mono.just(7L));
+        Mockito.when(serviceMock.findPage(null, 1))
+                .thenReturn(Mono.just(new AnimePage(List.of(anime), anime.getId())));
+
+        testClient.get()
+                .uri("/animes?limit=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"7\"")
+                .expectHeader().valueEquals(HttpHeaders.LINK,
+                        "</animes?limit=1&after=" + anime.getId() + ">; rel=\"next\"")
+                .expectBodyList(Anime.class)
+                .contains(anime);
+    }
+
+    @Test
+    void shouldNotReadPageWhenCollectionIsNotModified() {
+        Mockito.when(serviceMock.collectionVersion())
+                .thenReturn(Mono.just(7L));
+
+        testClient.get()
+                .uri("/animes")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"7\"")
+                .exchange()
+                .expectStatus().isNotModified();
+
+        Mockito.verify(serviceMock, Mockito.never())
+                .findPage(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void shouldStreamAllWhenNdjsonIsAccepted() {
+        Mockito.when(serviceMock.streamAll(null))
+                .thenReturn(Flux.just(anime));
+
+        testClient.get()
+                .uri("/animes")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Anime.class)
+                .contains(anime);
+    }
+
+    @Test
+    void shouldFindAllByCommaSeparatedIds() {
+        Mockito.when(serviceMock.findAllById(List.of(anime.getId(), anime.getId())))
+                .thenReturn(Flux.just(anime));
+
+        testClient.get()
+                .uri("/animes?ids=" + anime.getId() + "," + anime.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Anime.class)
+                .contains(anime);
+    }
+
+    @Test
+    void shouldRejectMalformedIds() {
+        testClient.get()
+                .uri("/animes?ids=not-a-uuid")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        Mockito.verifyNoInteractions(serviceMock);
+    }
+
+    @Test
+    void shouldSearch() {
+        Mockito.when(serviceMock.search("tensei", 5))
+                .thenReturn(Flux.just(anime));
+
+        testClient.get()
+                .uri("/animes/search?q=tensei&limit=5")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Anime.class)
+                .contains(anime);
+    }
+
+    @Test
+    void shouldFindByIdAsEncodedJsonWithETag() throws Exception {
+        var json = new ObjectMapper().writeValueAsBytes(anime.withVersion(3L));
+        Mockito.when(serviceMock.findJsonById(anime.getId()))
+                .thenReturn(Mono.just(new AnimeJsonCache.Entry(3L, json)));
+
+        testClient.get()
+                .uri("/animes/{id}", anime.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody(Anime.class)
+                .isEqualTo(anime.withVersion(3L));
+
+        Mockito.verify(serviceMock, Mockito.never())
+                .findById(anime.getId());
+    }
+
+    @Test
+    void shouldFindByIdWithETagWhenAnotherFormatIsPreferred() {
+        Mockito.when(serviceMock.findById(anime.getId()))
+                .thenReturn(Mono.just(anime.withVersion(3L)));
+
+        testClient.get()
+                .uri("/animes/{id}", anime.getId())
+                .accept(MediaType.valueOf(BinaryCodecConfiguration.APPLICATION_SMILE_VALUE), MediaType.ALL)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(BinaryCodecConfiguration.APPLICATION_SMILE_VALUE)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody(Anime.class)
+                .isEqualTo(anime.withVersion(3L));
+    }
+
+    @Test
+    void shouldSaveAnime() {
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+
+        Mockito.when(serviceMock.save(animeToBeSaved))
+                .thenReturn(Mono.just(anime));
+
+        testClient.post()
+                .uri("/animes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(animeToBeSaved)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Anime.class)
+                .isEqualTo(anime);
+    }
+
+    @Test
+    void shouldUpdateAnimeWithVersionFromIfMatch() {
+        Anime validUpdatedAnime = AnimeCreator.createValidUpdatedAnime();
+
+        Mockito.when(serviceMock.update(validUpdatedAnime.withVersion(4L)))
+                .thenReturn(Mono.empty());
+
+        testClient.put()
+                .uri("/animes/{id}", AnimeCreator.ANIME_ID_1)
+                .header(HttpHeaders.IF_MATCH, "\"4\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(validUpdatedAnime)
+                .exchange()
+                .expectStatus().isNoContent();
+
+        Mockito.verify(serviceMock, Mockito.times(1))
+                .update(validUpdatedAnime.withVersion(4L));
+    }
+
+    @Test
+    void shouldFailPreconditionWhenVersionDoesNotMatchIfMatch() {
+        Anime validUpdatedAnime = AnimeCreator.createValidUpdatedAnime();
+
+        Mockito.when(serviceMock.update(validUpdatedAnime.withVersion(4L)))
+                .thenReturn(Mono.error(new VersionConflictException("anime is at version 5, not 4")));
+
+        var request = MockServerRequest.builder()
+                .pathVariable("id", AnimeCreator.ANIME_ID_1.toString())
+                .header(HttpHeaders.IF_MATCH, "\"4\"")
+                .body(Mono.just(validUpdatedAnime));
+
+        StepVerifier.create(handler.update(request))
+                .expectSubscription()
+                .expectError(PreconditionFailedException.class)
+                .verify();
+    }
+
+    @Test
+    void shouldRejectIfMatchThatIsNotAStrongVersionETag() {
+        var request = MockServerRequest.builder()
+                .pathVariable("id", AnimeCreator.ANIME_ID_1.toString())
+                .header(HttpHeaders.IF_MATCH, "W/\"4\"")
+                .body(Mono.just(AnimeCreator.createValidUpdatedAnime()));
+
+        StepVerifier.create(handler.update(request))
+                .expectSubscription()
+                .expectError(ServiceValidationException.class)
+                .verify();
+
+        Mockito.verifyNoInteractions(serviceMock);
+    }
+
+    @Test
+    void shouldDeleteAnime() {
+        Mockito.when(serviceMock.delete(AnimeCreator.ANIME_ID_1))
+                .thenReturn(Mono.empty());
+
+        testClient.delete()
+                .uri("/animes/{id}", AnimeCreator.ANIME_ID_1)
+                .exchange()
+                .expectStatus().isNoContent();
+
+        Mockito.verify(serviceMock, Mockito.times(1))
+                .delete(AnimeCreator.ANIME_ID_1);
+    }
+}
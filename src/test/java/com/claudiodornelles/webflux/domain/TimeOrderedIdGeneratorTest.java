@@ -0,0 +1,47 @@
+package com.claudiodornelles.webflux.domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+class TimeOrderedIdGeneratorTest {
+
+    private final TimeOrderedIdGenerator idGenerator = new TimeOrderedIdGenerator();
+
+    @Test
+    void shouldGenerateVersion7Ids() {
+        var id = idGenerator.generateId();
+
+        Assertions.assertEquals(7, id.version());
+        Assertions.assertEquals(2, id.variant());
+    }
+
+    @Test
+    void shouldGenerateStrictlyIncreasingIds() {
+        var ids = new ArrayList<UUID>();
+        for (int i = 0; i < 100_000; i++) {
+            ids.add(idGenerator.generateId());
+        }
+
+        for (int i = 1; i < ids.size(); i++) {
+            Assertions.assertTrue(ids.get(i - 1).getMostSignificantBits() < ids.get(i).getMostSignificantBits());
+        }
+    }
+
+    @Test
+    void shouldNotGenerateDuplicatesWhenCalledConcurrently() {
+        var ids = Flux.range(0, 8)
+                .parallel(8)
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> Flux.range(0, 10_000).map(j -> idGenerator.generateId()))
+                .sequential()
+                .collectList()
+                .block();
+
+        Assertions.assertEquals(80_000, ids.stream().distinct().count());
+    }
+}
@@ -0,0 +1,65 @@
+package com.claudiodornelles.webflux.exception;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.OffsetDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+class ErrorShapeTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void shouldMatchEachExceptionTypeToItsShape() {
+        Assertions.assertEquals(ErrorShape.PRECONDITION_FAILED, ErrorShape.of(new PreconditionFailedException("stale")));
+        Assertions.assertEquals(ErrorShape.VERSION_CONFLICT, ErrorShape.of(new VersionConflictException("stale")));
+        Assertions.assertEquals(ErrorShape.NOT_FOUND, ErrorShape.of(new NotFoundException("missing")));
+        Assertions.assertNull(ErrorShape.of(new IllegalStateException("boom")));
+    }
+
+    @Test
+    void shouldEncodeTheSameFieldsAsTheErrorAttributes() throws Exception {
+        var body = ErrorShape.NOT_FOUND.encode(new NotFoundException("could not find anime with \"id\"\n1"));
+
+        var attributes = objectMapper.readValue(body, Map.class);
+
+        Assertions.assertEquals(List.of("timestamp", "status", "error", "message"), List.copyOf(attributes.keySet()));
+        Assertions.assertEquals(404, attributes.get("status"));
+        Assertions.assertEquals("Resource Not Found", attributes.get("error"));
+        Assertions.assertEquals("could not find anime with \"id\"\n1", attributes.get("message"));
+        var timestamp = (String) attributes.get("timestamp");
+        var date = Date.from(OffsetDateTime.parse(timestamp).toInstant());
+        Assertions.assertEquals('"' + timestamp + '"', objectMapper.writeValueAsString(date));
+    }
+
+    @Test
+    void shouldEncodeResponseStatusErrorsWithTheReasonPhrase() throws Exception {
+        var attributes = objectMapper.readValue(ErrorBodies.encode(HttpStatus.NOT_FOUND, null), Map.class);
+
+        Assertions.assertEquals(404, attributes.get("status"));
+        Assertions.assertEquals("Not Found", attributes.get("error"));
+        Assertions.assertTrue(attributes.containsKey("message"));
+        Assertions.assertNull(attributes.get("message"));
+    }
+
+    @Test
+    void shouldLeaveValidationErrorsWithViolationsToTheErrorAttributes() {
+        var violation = new ServiceValidationException.Violation("name", "name cannot be empty");
+
+        Assertions.assertNull(ErrorShape.SERVICE_VALIDATION.encode(
+                new ServiceValidationException("invalid anime", List.of(violation))));
+        Assertions.assertNotNull(ErrorShape.SERVICE_VALIDATION.encode(new ServiceValidationException("invalid anime")));
+    }
+
+    @Test
+    void shouldNotFillInStackTraces() {
+        Assertions.assertEquals(0, new NotFoundException("missing").getStackTrace().length);
+    }
+}
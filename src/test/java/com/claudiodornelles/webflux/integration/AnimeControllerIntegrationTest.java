@@ -1,26 +1,42 @@
 package com.claudiodornelles.webflux.integration;
 
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.config.BinaryCodecConfiguration;
 import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.domain.TimeOrderedIdGenerator;
 import com.claudiodornelles.webflux.exception.CustomAttributes;
 import com.claudiodornelles.webflux.repository.AnimeRepository;
+import com.claudiodornelles.webflux.service.AnimeBatchLoader;
+import com.claudiodornelles.webflux.service.AnimeBatchWriter;
+import com.claudiodornelles.webflux.service.AnimeCache;
+import com.claudiodornelles.webflux.service.AnimeChangeStream;
+import com.claudiodornelles.webflux.service.AnimeJsonCache;
 import com.claudiodornelles.webflux.service.AnimeService;
+import com.claudiodornelles.webflux.service.AnimeWriteBehindBuffer;
+import com.claudiodornelles.webflux.service.EntityValidator;
 import com.claudiodornelles.webflux.util.AnimeCreator;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.reactive.function.BodyInserters;
 import reactor.blockhound.BlockHound;
 import reactor.blockhound.BlockingOperationError;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
 
 import java.util.List;
 import java.util.UUID;
@@ -29,14 +45,21 @@ import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @WebFluxTest
-@Import({AnimeService.class, CustomAttributes.class})
+@Import({BinaryCodecConfiguration.class, AnimeService.class, AnimeCache.class, AnimeJsonCache.class,
+        AnimeBatchWriter.class, AnimeBatchLoader.class, CustomAttributes.class,
+        AnimeProperties.class, TimeOrderedIdGenerator.class, EntityValidator.class, AnimeWriteBehindBuffer.class,
+        AnimeChangeStream.class})
 class AnimeControllerIntegrationTest {
 
     @MockBean
     private AnimeRepository repositoryMock;
 
+    @MockBean
+    private TransactionalOperator transactionalOperatorMock;
+
     @Autowired
     private WebTestClient testClient;
 
@@ -49,6 +72,15 @@ class AnimeControllerIntegrationTest {
         );
     }
 
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        Mockito.when(transactionalOperatorMock.transactional(Mockito.any(Flux.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        Mockito.when(repositoryMock.findCollectionVersion())
+                .thenReturn(Mono.just(1L));
+    }
+
     @Test
     void blockHoundWorks() {
         try {
@@ -69,7 +101,7 @@ class AnimeControllerIntegrationTest {
 
     @Test
     void shouldFindAll() {
-        Mockito.when(repositoryMock.findAll())
+        Mockito.when(repositoryMock.findPage(Mockito.anyInt()))
                 .thenReturn(Flux.just(anime));
 
         testClient.get()
@@ -82,12 +114,12 @@ class AnimeControllerIntegrationTest {
                 .jsonPath("$.[0].name").value(name -> assertEquals(anime.getName(), name));
 
         Mockito.verify(repositoryMock, Mockito.times(1))
-                .findAll();
+                .findPage(Mockito.anyInt());
     }
 
     @Test
     void shouldFindAll2() {
-        Mockito.when(repositoryMock.findAll())
+        Mockito.when(repositoryMock.findPage(Mockito.anyInt()))
                 .thenReturn(Flux.just(anime));
 
         testClient.get()
@@ -100,16 +132,103 @@ class AnimeControllerIntegrationTest {
                 .contains(anime);
 
         Mockito.verify(repositoryMock, Mockito.times(1))
-                .findAll();
+                .findPage(Mockito.anyInt());
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWhenCollectionVersionMatches() {
+        testClient.get()
+                .uri("/animes")
+                .ifNoneMatch("\"1\"")
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody()
+                .isEmpty();
+
+        Mockito.verify(repositoryMock, Mockito.never())
+                .findPage(Mockito.anyInt());
+    }
+
+    @Test
+    void shouldFindPageAfterCursorWithNextLink() {
+        var secondAnime = anime.withId(UUID.randomUUID());
+
+        Mockito.when(repositoryMock.findPageAfter(AnimeCreator.ANIME_ID_1, 2))
+                .thenReturn(Flux.just(anime, secondAnime));
+
+        testClient.get()
+                .uri("/animes?after={after}&limit=1", AnimeCreator.ANIME_ID_1)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .value(HttpHeaders.LINK, link -> assertTrue(link.contains("after=" + anime.getId())))
+                .expectBodyList(Anime.class)
+                .hasSize(1)
+                .contains(anime);
+    }
+
+    @Test
+    void shouldStreamAllAsNdjson() {
+        Mockito.when(repositoryMock.streamAll(Mockito.isNull(), Mockito.anyInt()))
+                .thenReturn(Flux.just(anime, anime));
+
+        var body = testClient.get()
+                .uri("/animes")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Anime.class)
+                .getResponseBody();
+
+        StepVerifier.create(body)
+                .expectNext(anime, anime)
+                .verifyComplete();
+
+        Mockito.verify(repositoryMock, Mockito.never())
+                .findPage(Mockito.anyInt());
+    }
+
+    @Test
+    void shouldSearchByName() {
+        Mockito.when(repositoryMock.searchByNamePrefix("tensei", "tensej", 10))
+                .thenReturn(Flux.just(anime));
+        Mockito.when(repositoryMock.searchByNameSimilarity("tensei", 10))
+                .thenReturn(Flux.just(anime));
+
+        testClient.get()
+                .uri("/animes/search?q={q}&limit={limit}", "Tensei", 10)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Anime.class)
+                .isEqualTo(List.of(anime));
+    }
+
+    @Test
+    void shouldFailSearchWithoutQuery() {
+        testClient.get()
+                .uri("/animes/search?q=")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400);
     }
 
     @Test
     void shouldFindById() {
-        Mockito.when(repositoryMock.findById(Mockito.any(UUID.class)))
-                .thenReturn(Mono.just(anime));
+        Mockito.when(repositoryMock.findAllByIdIn(Mockito.anyCollection()))
+                .thenReturn(Flux.just(anime));
 
         testClient.get()
-                .uri("/animes/{id}", UUID.randomUUID())
+                .uri("/animes/{id}", anime.getId())
                 .exchange()
                 .expectStatus()
                 .isOk()
@@ -117,13 +236,146 @@ class AnimeControllerIntegrationTest {
                 .isEqualTo(anime);
 
         Mockito.verify(repositoryMock, Mockito.times(1))
-                .findById(Mockito.any(UUID.class));
+                .findAllByIdIn(Mockito.anyCollection());
+    }
+
+    @Test
+    void shouldFindByIdAsEncodedJsonWithETag() {
+        var versionedAnime = anime.withId(UUID.randomUUID()).withVersion(3L);
+
+        Mockito.when(repositoryMock.findAllByIdIn(Mockito.anyCollection()))
+                .thenReturn(Flux.just(versionedAnime));
+
+        testClient.get()
+                .uri("/animes/{id}", versionedAnime.getId())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_JSON)
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody(Anime.class)
+                .isEqualTo(versionedAnime);
+    }
+
+    @Test
+    void shouldFindByIdAsEncodedJsonWithoutAcceptHeader() {
+        var versionedAnime = anime.withId(UUID.randomUUID()).withVersion(3L);
+
+        Mockito.when(repositoryMock.findAllByIdIn(Mockito.anyCollection()))
+                .thenReturn(Flux.just(versionedAnime));
+
+        testClient.get()
+                .uri("/animes/{id}", versionedAnime.getId())
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_JSON)
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody(Anime.class)
+                .isEqualTo(versionedAnime);
+    }
+
+    @Test
+    void shouldFindByIdAsEncodedJsonForWildcardAccept() {
+        var versionedAnime = anime.withId(UUID.randomUUID()).withVersion(3L);
+
+        Mockito.when(repositoryMock.findAllByIdIn(Mockito.anyCollection()))
+                .thenReturn(Flux.just(versionedAnime));
+
+        testClient.get()
+                .uri("/animes/{id}", versionedAnime.getId())
+                .accept(MediaType.ALL)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_JSON)
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody(Anime.class)
+                .isEqualTo(versionedAnime);
+    }
+
+    @Test
+    void shouldFindByIdAsCbor() {
+        Mockito.when(repositoryMock.findAllByIdIn(Mockito.anyCollection()))
+                .thenReturn(Flux.just(anime));
+
+        testClient.get()
+                .uri("/animes/{id}", anime.getId())
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(Anime.class)
+                .isEqualTo(anime);
+    }
+
+    @Test
+    void shouldFindAllAsSmile() {
+        Mockito.when(repositoryMock.findPage(Mockito.anyInt()))
+                .thenReturn(Flux.just(anime));
+
+        testClient.get()
+                .uri("/animes")
+                .accept(MediaType.valueOf(BinaryCodecConfiguration.APPLICATION_SMILE_VALUE))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(BinaryCodecConfiguration.APPLICATION_SMILE_VALUE)
+                .expectBody(new ParameterizedTypeReference<List<Anime>>() {
+                })
+                .isEqualTo(List.of(anime));
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWhenAnimeVersionMatches() {
+        var versionedAnime = anime.withId(UUID.randomUUID()).withVersion(3L);
+
+        Mockito.when(repositoryMock.findAllByIdIn(Mockito.anyCollection()))
+                .thenReturn(Flux.just(versionedAnime));
+
+        testClient.get()
+                .uri("/animes/{id}", versionedAnime.getId())
+                .ifNoneMatch("\"3\"")
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+    }
+
+    @Test
+    void shouldFindAllById() {
+        var secondAnime = anime.withId(UUID.randomUUID());
+
+        Mockito.when(repositoryMock.findAllByIdIn(Mockito.anyCollection()))
+                .thenReturn(Flux.just(secondAnime, anime));
+
+        testClient.get()
+                .uri("/animes?ids={first},{second}", anime.getId(), secondAnime.getId())
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Anime.class)
+                .isEqualTo(List.of(anime, secondAnime));
+
+        Mockito.verify(repositoryMock, Mockito.times(1))
+                .findAllByIdIn(Mockito.anyCollection());
     }
 
     @Test
     void shouldFailFindByIdWhenAnimeDoesNotExist() {
-        Mockito.when(repositoryMock.findById(Mockito.any(UUID.class)))
-                .thenReturn(Mono.empty());
+        Mockito.when(repositoryMock.findAllByIdIn(Mockito.anyCollection()))
+                .thenReturn(Flux.empty());
 
         testClient.get()
                 .uri("/animes/{id}", UUID.randomUUID())
@@ -135,7 +387,7 @@ class AnimeControllerIntegrationTest {
                 .jsonPath("$.message").value(message -> assertEquals("404 NOT_FOUND \"Anime not found\"", message));
 
         Mockito.verify(repositoryMock, Mockito.times(1))
-                .findById(Mockito.any(UUID.class));
+                .findAllByIdIn(Mockito.anyCollection());
     }
 
     @Test
@@ -164,7 +416,7 @@ class AnimeControllerIntegrationTest {
     void shouldSaveBatchAnime() {
         Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
 
-        Mockito.when(repositoryMock.saveAll(Mockito.anyList()))
+        Mockito.when(repositoryMock.insertAll(Mockito.anyList()))
                 .thenReturn(Flux.just(animeToBeSaved, animeToBeSaved));
 
         testClient.post()
@@ -178,15 +430,32 @@ class AnimeControllerIntegrationTest {
                 .contains(animeToBeSaved);
 
         Mockito.verify(repositoryMock, Mockito.times(1))
-                .saveAll(Mockito.anyList());
+                .insertAll(Mockito.anyList());
     }
 
     @Test
-    void shouldFailSaveBatchWhenAnimeContainsNullOrEmptyName() {
+    void shouldSaveBatchAnimeFromCbor() {
         Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
 
-        Mockito.when(repositoryMock.saveAll(Mockito.anyList()))
-                .thenReturn(Flux.just(animeToBeSaved, animeToBeSaved.withName("")));
+        Mockito.when(repositoryMock.insertAll(Mockito.anyList()))
+                .thenReturn(Flux.just(animeToBeSaved, animeToBeSaved));
+
+        testClient.post()
+                .uri("/animes/batch")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR)
+                .body(BodyInserters.fromValue(List.of(animeToBeSaved, animeToBeSaved)))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(new ParameterizedTypeReference<List<Anime>>() {
+                })
+                .isEqualTo(List.of(animeToBeSaved, animeToBeSaved));
+    }
+
+    @Test
+    void shouldFailSaveBatchWhenAnimeContainsNullOrEmptyName() {
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
 
         testClient.post()
                 .uri("/animes/batch")
@@ -195,10 +464,35 @@ class AnimeControllerIntegrationTest {
                 .exchange()
                 .expectStatus().isBadRequest()
                 .expectBody()
-                .jsonPath("$.status").isEqualTo(400);
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.violations[0].field").isEqualTo("[1].name")
+                .jsonPath("$.violations[0].message").isEqualTo("name cannot be empty");
 
-        Mockito.verify(repositoryMock, Mockito.times(1))
-                .saveAll(Mockito.anyList());
+        Mockito.verify(repositoryMock, Mockito.never())
+                .insertAll(Mockito.anyList());
+    }
+
+    @Test
+    void shouldImportAnimesFromNdjson() {
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+
+        Mockito.when(repositoryMock.insertAll(Mockito.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Anime>>getArgument(0)));
+
+        var body = testClient.post()
+                .uri("/animes/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"name\":\"" + animeToBeSaved.getName() + "\"}\n{\"name\":\"" + animeToBeSaved.getName() + "\"}\n")
+                .exchange()
+                .expectStatus().isCreated()
+                .returnResult(Anime.class)
+                .getResponseBody();
+
+        StepVerifier.create(body)
+                .expectNextMatches(anime -> anime.getId() != null && anime.getName().equals(animeToBeSaved.getName()))
+                .expectNextMatches(anime -> anime.getId() != null && anime.getName().equals(animeToBeSaved.getName()))
+                .verifyComplete();
     }
 
     @Test
@@ -218,10 +512,8 @@ class AnimeControllerIntegrationTest {
 
     @Test
     void shouldDeleteAnime() {
-        Mockito.when(repositoryMock.findById(Mockito.any(UUID.class)))
-                .thenReturn(Mono.just(AnimeCreator.createValidAnime()));
-        Mockito.when(repositoryMock.delete(Mockito.any(Anime.class)))
-                .thenReturn(Mono.empty());
+        Mockito.when(repositoryMock.deleteById(Mockito.any(UUID.class)))
+                .thenReturn(Mono.just(1));
 
         testClient.delete()
                 .uri("/animes/{id}", UUID.randomUUID())
@@ -229,15 +521,15 @@ class AnimeControllerIntegrationTest {
                 .expectStatus().isNoContent();
 
         Mockito.verify(repositoryMock, Mockito.times(1))
+                .deleteById(Mockito.any(UUID.class));
+        Mockito.verify(repositoryMock, Mockito.never())
                 .findById(Mockito.any(UUID.class));
-        Mockito.verify(repositoryMock, Mockito.times(1))
-                .delete(Mockito.any(Anime.class));
     }
 
     @Test
     void shouldFailDeleteWhenAnimeDoesNotExist() {
-        Mockito.when(repositoryMock.findById(Mockito.any(UUID.class)))
-                .thenReturn(Mono.empty());
+        Mockito.when(repositoryMock.deleteById(Mockito.any(UUID.class)))
+                .thenReturn(Mono.just(0));
 
         testClient.delete()
                 .uri("/animes/{id}", UUID.randomUUID())
@@ -248,19 +540,15 @@ class AnimeControllerIntegrationTest {
                 .jsonPath("$.message").value(message -> assertEquals("404 NOT_FOUND \"Anime not found\"", message));
 
         Mockito.verify(repositoryMock, Mockito.times(1))
-                .findById(Mockito.any(UUID.class));
-        Mockito.verify(repositoryMock, Mockito.never())
-                .delete(Mockito.any(Anime.class));
+                .deleteById(Mockito.any(UUID.class));
     }
 
     @Test
     void shouldUpdateAnime() {
         Anime validUpdatedAnime = AnimeCreator.createValidUpdatedAnime();
 
-        Mockito.when(repositoryMock.findById(Mockito.any(UUID.class)))
-                .thenReturn(Mono.just(validUpdatedAnime));
-        Mockito.when(repositoryMock.save(validUpdatedAnime))
-                .thenReturn(Mono.just(validUpdatedAnime));
+        Mockito.when(repositoryMock.updateById(AnimeCreator.ANIME_ID_1, validUpdatedAnime.getName()))
+                .thenReturn(Mono.just(1L));
 
         testClient.put()
                 .uri("/animes/{id}", AnimeCreator.ANIME_ID_1)
@@ -270,14 +558,53 @@ class AnimeControllerIntegrationTest {
                 .expectStatus().isNoContent();
 
         Mockito.verify(repositoryMock, Mockito.times(1))
+                .updateById(AnimeCreator.ANIME_ID_1, validUpdatedAnime.getName());
+        Mockito.verify(repositoryMock, Mockito.never())
                 .findById(Mockito.any(UUID.class));
-        Mockito.verify(repositoryMock, Mockito.times(1))
-                .save(validUpdatedAnime);
+    }
+
+    @Test
+    void shouldFailPreconditionWhenIfMatchIsStale() {
+        Anime validUpdatedAnime = AnimeCreator.createValidUpdatedAnime();
+
+        Mockito.when(repositoryMock.updateByIdAndVersion(AnimeCreator.ANIME_ID_1, 1L, validUpdatedAnime.getName()))
+                .thenReturn(Mono.empty());
+        Mockito.when(repositoryMock.findById(AnimeCreator.ANIME_ID_1))
+                .thenReturn(Mono.just(validUpdatedAnime.withVersion(2L)));
+
+        testClient.put()
+                .uri("/animes/{id}", AnimeCreator.ANIME_ID_1)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .body(BodyInserters.fromValue(validUpdatedAnime))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(412);
+    }
+
+    @Test
+    void shouldConflictWhenBodyVersionIsStale() {
+        Anime validUpdatedAnime = AnimeCreator.createValidUpdatedAnime().withVersion(1L);
+
+        Mockito.when(repositoryMock.updateByIdAndVersion(AnimeCreator.ANIME_ID_1, 1L, validUpdatedAnime.getName()))
+                .thenReturn(Mono.empty());
+        Mockito.when(repositoryMock.findById(AnimeCreator.ANIME_ID_1))
+                .thenReturn(Mono.just(validUpdatedAnime.withVersion(2L)));
+
+        testClient.put()
+                .uri("/animes/{id}", AnimeCreator.ANIME_ID_1)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(validUpdatedAnime))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(409);
     }
 
     @Test
     void shouldFailUpdateWhenAnimeDoesNotExist() {
-        Mockito.when(repositoryMock.findById(Mockito.any(UUID.class)))
+        Mockito.when(repositoryMock.updateById(Mockito.any(UUID.class), Mockito.anyString()))
                 .thenReturn(Mono.empty());
 
         testClient.put()
@@ -291,8 +618,6 @@ class AnimeControllerIntegrationTest {
                 .jsonPath("$.message").value(message -> assertEquals("404 NOT_FOUND \"Anime not found\"", message));
 
         Mockito.verify(repositoryMock, Mockito.times(1))
-                .findById(Mockito.any(UUID.class));
-        Mockito.verify(repositoryMock, Mockito.never())
-                .save(Mockito.any(Anime.class));
+                .updateById(Mockito.any(UUID.class), Mockito.anyString());
     }
 }
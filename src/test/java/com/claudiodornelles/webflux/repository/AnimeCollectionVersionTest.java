@@ -0,0 +1,113 @@
+package com.claudiodornelles.webflux.repository;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.UUID;
+
+/**
+ * Runs the migrations against a real Postgres to check that the collection version behind the {@code GET /animes}
+ * ETag only moves once a write that changed rows commits.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AnimeCollectionVersionTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:13-alpine");
+
+    private static DatabaseClient writer;
+    private static DatabaseClient reader;
+    private static TransactionalOperator transactionalOperator;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .load()
+                .migrate();
+        var writes = connectionFactory();
+        writer = DatabaseClient.create(writes);
+        // a separate connection factory never joins the writer's transaction, so it reads what other sessions see
+        reader = DatabaseClient.create(connectionFactory());
+        transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(writes));
+    }
+
+    @Test
+    void shouldNotExposeTheVersionOfAnUncommittedWrite() {
+        var before = version();
+
+        StepVerifier.create(transactionalOperator.transactional(insert("Naruto").then(readVersion())))
+                .expectNext(before)
+                .verifyComplete();
+
+        Assertions.assertEquals(before + 1, version());
+    }
+
+    @Test
+    void shouldNotBumpTheVersionForARolledBackWrite() {
+        var before = version();
+
+        StepVerifier.create(transactionalOperator.transactional(insert("Bleach")
+                        .then(Mono.error(new IllegalStateException("roll back")))))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        Assertions.assertEquals(before, version());
+    }
+
+    @Test
+    void shouldNotBumpTheVersionForStatementsThatChangeNoRows() {
+        var before = version();
+
+        writer.sql("DELETE FROM anime WHERE id = :id")
+                .bind("id", UUID.randomUUID())
+                .fetch()
+                .rowsUpdated()
+                .block();
+
+        Assertions.assertEquals(before, version());
+    }
+
+    private static Mono<Void> insert(String name) {
+        return writer.sql("INSERT INTO anime (id, name) VALUES (:id, :name)")
+                .bind("id", UUID.randomUUID())
+                .bind("name", name)
+                .fetch()
+                .rowsUpdated()
+                .then();
+    }
+
+    private static Mono<Long> readVersion() {
+        return reader.sql("SELECT version FROM anime_collection_version")
+                .map(row -> row.get("version", Long.class))
+                .one();
+    }
+
+    private static long version() {
+        return readVersion().block();
+    }
+
+    private static ConnectionFactory connectionFactory() {
+        return ConnectionFactories.get(ConnectionFactoryOptions.builder()
+                .option(ConnectionFactoryOptions.DRIVER, "postgresql")
+                .option(ConnectionFactoryOptions.HOST, POSTGRES.getHost())
+                .option(ConnectionFactoryOptions.PORT, POSTGRES.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT))
+                .option(ConnectionFactoryOptions.DATABASE, POSTGRES.getDatabaseName())
+                .option(ConnectionFactoryOptions.USER, POSTGRES.getUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, POSTGRES.getPassword())
+                .build());
+    }
+}
@@ -0,0 +1,57 @@
+package com.claudiodornelles.webflux.repository;
+
+import com.claudiodornelles.webflux.util.AnimeCreator;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class AnimeRepositoryMetricsPostProcessorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final AnimeRepository repositoryMock = Mockito.mock(AnimeRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        Metrics.globalRegistry.add(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Metrics.globalRegistry.remove(registry);
+    }
+
+    @Test
+    void shouldTimeRepositoryQueries() {
+        var anime = AnimeCreator.createValidAnime();
+        Mockito.when(repositoryMock.findById(anime.getId()))
+                .thenReturn(Mono.just(anime));
+
+        var repository = (AnimeRepository) new AnimeRepositoryMetricsPostProcessor()
+                .postProcessAfterInitialization(repositoryMock, "animeRepository");
+
+        StepVerifier.create(repository.findById(anime.getId()))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        var timer = registry.find(AnimeRepositoryMetricsPostProcessor.METRIC_NAME + ".flow.duration")
+                .tag("method", "findById")
+                .timer();
+        Assertions.assertNotNull(timer);
+        Assertions.assertEquals(1, timer.count());
+    }
+
+    @Test
+    void shouldLeaveOtherBeansUntouched() {
+        var bean = new Object();
+
+        Assertions.assertSame(bean, new AnimeRepositoryMetricsPostProcessor().postProcessAfterInitialization(bean, "bean"));
+    }
+}
@@ -0,0 +1,163 @@
+package com.claudiodornelles.webflux.repository;
+
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.domain.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+class InMemoryAnimeRepositoryTest {
+
+    private static final UUID LOW = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID HIGH = UUID.fromString("ffffffff-0000-0000-0000-000000000001");
+
+    private final InMemoryAnimeRepository repository = new InMemoryAnimeRepository();
+
+    @Test
+    void shouldPageInUnsignedUuidOrderLikePostgres() {
+        repository.insertAll(List.of(anime(HIGH, "Naruto"), anime(LOW, "Bleach"))).blockLast();
+
+        StepVerifier.create(repository.findPage(10).map(Anime::getId))
+                .expectNext(LOW, HIGH)
+                .verifyComplete();
+
+        StepVerifier.create(repository.findPageAfter(LOW, 10).map(Anime::getId))
+                .expectNext(HIGH)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldSearchByNamePrefixRangeInNameOrder() {
+        repository.insertAll(List.of(anime(LOW, "100% Pascal-sensei"), anime(HIGH, "100 Sleeping Princes"),
+                anime(UUID.randomUUID(), "Naruto"))).blockLast();
+
+        StepVerifier.create(repository.searchByNamePrefix("100%", "100&", 10).map(Anime::getName))
+                .expectNext("100% Pascal-sensei")
+                .verifyComplete();
+
+        StepVerifier.create(repository.searchByNamePrefix("100", "101", 10).map(Anime::getName))
+                .expectNext("100 Sleeping Princes", "100% Pascal-sensei")
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldSearchByTrigramSimilarityAboveThreshold() {
+        repository.insertAll(List.of(anime(LOW, "Shingeki no Kyojin"), anime(HIGH, "One Piece"))).blockLast();
+
+        StepVerifier.create(repository.searchByNameSimilarity("shingeki kyojin", 10).map(Anime::getName))
+                .expectNext("Shingeki no Kyojin")
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReindexRenamedAnimes() {
+        var saved = repository.save(Anime.builder().name("Naruto").build()).block();
+
+        StepVerifier.create(repository.updateById(saved.getId(), "Boruto"))
+                .expectNext(1L)
+                .verifyComplete();
+
+        StepVerifier.create(repository.searchByNamePrefix("naruto", "narutp", 10))
+                .verifyComplete();
+        StepVerifier.create(repository.searchByNameSimilarity("naruto", 10))
+                .verifyComplete();
+        StepVerifier.create(repository.searchByNamePrefix("boruto", "borutp", 10).map(Anime::getVersion))
+                .expectNext(1L)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotExposeStoredRowsToCallers() {
+        repository.insertAll(List.of(anime(LOW, "Naruto"))).blockLast();
+
+        repository.findById(LOW).block().setName("Boruto");
+        repository.findAllByIdIn(List.of(LOW)).blockFirst().setVersion(5L);
+        repository.findPage(10).blockFirst().setName("Bleach");
+        repository.searchByNamePrefix("naruto", "narutp", 10).blockFirst().setName("Bleach");
+
+        StepVerifier.create(repository.findById(LOW))
+                .expectNext(anime(LOW, "Naruto"))
+                .verifyComplete();
+        StepVerifier.create(repository.searchByNamePrefix("naruto", "narutp", 10).map(Anime::getId))
+                .expectNext(LOW)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldOnlyUpdateMatchingVersion() {
+        var saved = repository.save(Anime.builder().name("Naruto").build()).block();
+
+        StepVerifier.create(repository.updateByIdAndVersion(saved.getId(), 3L, "Boruto"))
+                .verifyComplete();
+        StepVerifier.create(repository.updateByIdAndVersion(saved.getId(), 0L, "Boruto"))
+                .expectNext(1L)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldRejectStaleSaves() {
+        var saved = repository.save(Anime.builder().name("Naruto").build()).block();
+        repository.updateById(saved.getId(), "Boruto").block();
+
+        StepVerifier.create(repository.save(saved.withName("Naruto Shippuden")))
+                .expectError(OptimisticLockingFailureException.class)
+                .verify();
+    }
+
+    @Test
+    void shouldRejectDuplicateInserts() {
+        repository.insertAll(List.of(anime(LOW, "Naruto"))).blockLast();
+
+        StepVerifier.create(repository.insertAll(List.of(anime(LOW, "Bleach"))))
+                .expectError(DuplicateKeyException.class)
+                .verify();
+    }
+
+    @Test
+    void shouldBumpCollectionVersionOnEveryWrite() {
+        var saved = repository.save(Anime.builder().name("Naruto").build()).block();
+        repository.updateById(saved.getId(), "Boruto").block();
+        repository.deleteById(saved.getId()).block();
+
+        StepVerifier.create(repository.findCollectionVersion())
+                .expectNext(3L)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReloadSnapshotOnRestore(@TempDir Path directory) throws IOException {
+        var snapshotFile = new AnimeSnapshotFile(directory.resolve("anime.snapshot"));
+        var original = new InMemoryAnimeRepository(new TimeOrderedIdGenerator(), snapshotFile, Duration.ZERO);
+        original.restore();
+        var saved = original.save(Anime.builder().name("Shingeki no Kyojin").build()).block();
+        original.dispose();
+
+        var restored = new InMemoryAnimeRepository(new TimeOrderedIdGenerator(), snapshotFile, Duration.ZERO);
+        restored.restore();
+
+        StepVerifier.create(restored.findById(saved.getId()))
+                .expectNext(saved)
+                .verifyComplete();
+        StepVerifier.create(restored.searchByNamePrefix("shingeki", "shingekj", 10).map(Anime::getId))
+                .expectNext(saved.getId())
+                .verifyComplete();
+        Assertions.assertEquals(1L, restored.findCollectionVersion().block());
+    }
+
+    private static Anime anime(UUID id, String name) {
+        return Anime.builder()
+                .id(id)
+                .name(name)
+                .version(0L)
+                .build();
+    }
+}
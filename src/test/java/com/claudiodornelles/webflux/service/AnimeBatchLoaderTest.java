@@ -0,0 +1,106 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.repository.AnimeRepository;
+import com.claudiodornelles.webflux.util.AnimeCreator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+
+class AnimeBatchLoaderTest {
+
+    private final AnimeRepository repositoryMock = Mockito.mock(AnimeRepository.class);
+
+    private final AnimeProperties animeProperties = new AnimeProperties();
+
+    private final Anime anime = AnimeCreator.createValidAnime();
+
+    private AnimeBatchLoader batchLoader;
+
+    @BeforeEach
+    void setUp() {
+        animeProperties.getBatchLoader().setWindow(Duration.ofMillis(50));
+        batchLoader = new AnimeBatchLoader(repositoryMock, animeProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchLoader.destroy();
+    }
+
+    @Test
+    void shouldLoadConcurrentLookupsWithOneQuery() {
+        var secondAnime = anime.withId(UUID.randomUUID());
+        var missingId = UUID.randomUUID();
+
+        Mockito.when(repositoryMock.findAllByIdIn(Set.of(anime.getId(), secondAnime.getId(), missingId)))
+                .thenReturn(Flux.just(anime, secondAnime));
+
+        var lookups = Mono.zip(
+                batchLoader.load(anime.getId()),
+                batchLoader.load(secondAnime.getId()),
+                batchLoader.load(missingId).defaultIfEmpty(AnimeCreator.createAnimeToBeSaved())
+        );
+
+        StepVerifier.create(lookups)
+                .expectNextMatches(results -> results.getT1().equals(anime)
+                        && results.getT2().equals(secondAnime)
+                        && results.getT3().getId() == null)
+                .verifyComplete();
+
+        Mockito.verify(repositoryMock, Mockito.times(1))
+                .findAllByIdIn(Mockito.anyCollection());
+    }
+
+    @Test
+    void shouldFlushWhenMaxBatchSizeIsReached() {
+        batchLoader.destroy();
+        animeProperties.getBatchLoader().setWindow(Duration.ofMinutes(1));
+        animeProperties.getBatchLoader().setMaxBatchSize(1);
+        batchLoader = new AnimeBatchLoader(repositoryMock, animeProperties);
+
+        Mockito.when(repositoryMock.findAllByIdIn(Set.of(anime.getId())))
+                .thenReturn(Flux.just(anime));
+
+        StepVerifier.create(batchLoader.load(anime.getId()))
+                .expectNext(anime)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void shouldPropagateQueryErrorsToEveryLookupOfTheBatch() {
+        Mockito.when(repositoryMock.findAllByIdIn(Mockito.anyCollection()))
+                .thenReturn(Flux.error(new IllegalStateException("connection reset")));
+
+        StepVerifier.create(Mono.zipDelayError(batchLoader.load(anime.getId()), batchLoader.load(UUID.randomUUID())))
+                .expectError()
+                .verify();
+    }
+
+    @Test
+    void shouldQueryByIdWhenDisabled() {
+        batchLoader.destroy();
+        animeProperties.getBatchLoader().setEnabled(false);
+        batchLoader = new AnimeBatchLoader(repositoryMock, animeProperties);
+
+        Mockito.when(repositoryMock.findById(anime.getId()))
+                .thenReturn(Mono.just(anime));
+
+        StepVerifier.create(batchLoader.load(anime.getId()))
+                .expectNext(anime)
+                .verifyComplete();
+
+        Mockito.verify(repositoryMock, Mockito.never())
+                .findAllByIdIn(Mockito.anyCollection());
+    }
+}
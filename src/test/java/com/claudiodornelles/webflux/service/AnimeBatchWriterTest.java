@@ -0,0 +1,171 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.domain.TimeOrderedIdGenerator;
+import com.claudiodornelles.webflux.repository.AnimeRepository;
+import com.claudiodornelles.webflux.util.AnimeCreator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.IdGenerator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@ExtendWith(SpringExtension.class)
+class AnimeBatchWriterTest {
+
+    @InjectMocks
+    private AnimeBatchWriter batchWriter;
+
+    @Mock
+    private AnimeRepository repositoryMock;
+
+    @Mock
+    private TransactionalOperator transactionalOperatorMock;
+
+    @Spy
+    private AnimeProperties animeProperties = new AnimeProperties();
+
+    @Spy
+    private IdGenerator idGenerator = new TimeOrderedIdGenerator();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        animeProperties.getBatch().setChunkSize(2);
+        Mockito.when(transactionalOperatorMock.transactional(Mockito.any(Flux.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        Mockito.when(repositoryMock.insertAll(Mockito.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Anime>>getArgument(0)));
+    }
+
+    @Test
+    void shouldInsertNewAnimesInChunksInsideOneTransaction() {
+        var animes = newAnimes(5);
+
+        StepVerifier.create(batchWriter.write(animes))
+                .expectSubscription()
+                .expectNextSequence(animes)
+                .verifyComplete();
+
+        Mockito.verify(repositoryMock, Mockito.times(3))
+                .insertAll(Mockito.anyList());
+        Mockito.verify(transactionalOperatorMock, Mockito.times(1))
+                .transactional(Mockito.any(Flux.class));
+        Mockito.verify(repositoryMock, Mockito.never())
+                .saveAll(Mockito.anyIterable());
+        Assertions.assertTrue(animes.stream().allMatch(anime -> anime.getId() != null));
+    }
+
+    @Test
+    void shouldCommitEachChunkWhenConfigured() {
+        animeProperties.getBatch().setCommitPerChunk(true);
+
+        StepVerifier.create(batchWriter.write(newAnimes(5)))
+                .expectSubscription()
+                .expectNextCount(5)
+                .verifyComplete();
+
+        Mockito.verify(transactionalOperatorMock, Mockito.times(3))
+                .transactional(Mockito.any(Flux.class));
+    }
+
+    @Test
+    void shouldNotEmitAnyAnimeOfARolledBackTransaction() {
+        Mockito.when(repositoryMock.insertAll(Mockito.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Anime>>getArgument(0)))
+                .thenReturn(Flux.error(new IllegalStateException("insert failed")));
+
+        StepVerifier.create(batchWriter.write(newAnimes(3)))
+                .expectSubscription()
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+
+    @Test
+    void shouldSaveAnimesWithIdThroughRepository() {
+        var existingAnime = AnimeCreator.createValidAnime();
+        var newAnime = AnimeCreator.createAnimeToBeSaved();
+
+        Mockito.when(repositoryMock.saveAll(List.of(existingAnime)))
+                .thenReturn(Flux.just(existingAnime));
+
+        StepVerifier.create(batchWriter.write(List.of(existingAnime, newAnime)))
+                .expectSubscription()
+                .expectNext(newAnime, existingAnime)
+                .verifyComplete();
+
+        Mockito.verify(repositoryMock, Mockito.times(1))
+                .insertAll(List.of(newAnime));
+        Mockito.verify(repositoryMock, Mockito.times(1))
+                .saveAll(List.of(existingAnime));
+    }
+
+    @Test
+    void shouldCommitEachWindowOfAStream() {
+        StepVerifier.create(batchWriter.writeStream(Flux.fromIterable(newAnimes(5))))
+                .expectSubscription()
+                .expectNextCount(5)
+                .verifyComplete();
+
+        Mockito.verify(repositoryMock, Mockito.times(3))
+                .insertAll(Mockito.anyList());
+        Mockito.verify(transactionalOperatorMock, Mockito.times(3))
+                .transactional(Mockito.any(Flux.class));
+    }
+
+    @Test
+    void shouldCommitAPartialWindowOfAStreamAfterMaxDelay() {
+        animeProperties.getBatch().setMaxDelay(Duration.ofMillis(50));
+        var animes = Sinks.many().unicast().<Anime>onBackpressureBuffer();
+
+        StepVerifier.withVirtualTime(() -> batchWriter.writeStream(animes.asFlux()))
+                .expectSubscription()
+                .then(() -> animes.tryEmitNext(AnimeCreator.createAnimeToBeSaved()))
+                .expectNoEvent(Duration.ofMillis(40))
+                .thenAwait(Duration.ofMillis(10))
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+
+        Mockito.verify(repositoryMock, Mockito.times(1))
+                .insertAll(Mockito.argThat(chunk -> chunk.size() == 1));
+    }
+
+    @Test
+    void shouldKeepStreamingWhileAChunkCommitsSlowerThanMaxDelay() {
+        animeProperties.getBatch().setMaxDelay(Duration.ofMillis(50));
+        Mockito.when(repositoryMock.insertAll(Mockito.anyList()))
+                .thenAnswer(invocation -> Mono.delay(Duration.ofMillis(200))
+                        .thenMany(Flux.fromIterable(invocation.<List<Anime>>getArgument(0))));
+
+        StepVerifier.withVirtualTime(() -> batchWriter.writeStream(Flux.interval(Duration.ofMillis(30))
+                        .take(10)
+                        .map(i -> AnimeCreator.createAnimeToBeSaved())))
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(10))
+                .expectNextCount(10)
+                .verifyComplete();
+    }
+
+    private static List<Anime> newAnimes(int size) {
+        return IntStream.range(0, size)
+                .mapToObj(i -> AnimeCreator.createAnimeToBeSaved())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,77 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.util.AnimeCreator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+class AnimeCacheTest {
+
+    private final AnimeCache cache = new AnimeCache(new AnimeProperties());
+
+    private final Anime anime = AnimeCreator.createValidAnime();
+
+    @Test
+    void shouldShareOneLookupBetweenConcurrentCallers() {
+        var sink = Sinks.<Anime>one();
+        var loads = new AtomicInteger();
+
+        var first = cache.get(AnimeCreator.ANIME_ID_1, id -> {
+            loads.incrementAndGet();
+            return sink.asMono();
+        });
+        var second = cache.get(AnimeCreator.ANIME_ID_1, id -> {
+            loads.incrementAndGet();
+            return sink.asMono();
+        });
+
+        StepVerifier.create(Mono.zip(first, second))
+                .expectSubscription()
+                .then(() -> sink.tryEmitValue(anime))
+                .expectNextMatches(results -> results.getT1() == anime && results.getT2() == anime)
+                .verifyComplete();
+
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1, cache.coalescedCount());
+    }
+
+    @Test
+    void shouldNotCountHitsOfACompletedLookupAsCoalesced() {
+        var loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(cache.get(AnimeCreator.ANIME_ID_1, id -> {
+                        loads.incrementAndGet();
+                        return Mono.just(anime);
+                    }))
+                    .expectNext(anime)
+                    .verifyComplete();
+        }
+
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(0, cache.coalescedCount());
+    }
+
+    @Test
+    void shouldLoadAgainAfterInvalidation() {
+        var loads = new AtomicInteger();
+
+        cache.get(AnimeCreator.ANIME_ID_1, id -> {
+            loads.incrementAndGet();
+            return Mono.just(anime);
+        }).block();
+        cache.invalidate(AnimeCreator.ANIME_ID_1);
+        cache.get(AnimeCreator.ANIME_ID_1, id -> {
+            loads.incrementAndGet();
+            return Mono.just(anime);
+        }).block();
+
+        Assertions.assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,126 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.AnimeChange;
+import com.claudiodornelles.webflux.util.AnimeCreator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+class AnimeChangeStreamTest {
+
+    private final AnimeProperties animeProperties = new AnimeProperties();
+
+    @Test
+    void shouldPublishChangesInSequenceOrder() {
+        var stream = new AnimeChangeStream(animeProperties);
+        var anime = AnimeCreator.createValidAnime();
+
+        StepVerifier.create(stream.changes(null))
+                .expectSubscription()
+                .then(() -> {
+                    stream.saved(anime.withVersion(0L));
+                    stream.updated(anime.withVersion(1L));
+                    stream.deleted(anime.getId());
+                })
+                .expectNextMatches(change -> change.getSequence() == 1
+                        && change.getType() == AnimeChange.Type.CREATED
+                        && change.getAnime().getVersion() == 0L)
+                .expectNextMatches(change -> change.getSequence() == 2
+                        && change.getType() == AnimeChange.Type.UPDATED)
+                .expectNextMatches(change -> change.getSequence() == 3
+                        && change.getType() == AnimeChange.Type.DELETED
+                        && change.getId().equals(anime.getId())
+                        && change.getAnime() == null)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void shouldResumeAfterTheGivenSequence() {
+        var stream = new AnimeChangeStream(animeProperties);
+        publish(stream, 3);
+
+        StepVerifier.create(stream.changes(1L))
+                .expectNextMatches(change -> change.getSequence() == 2)
+                .expectNextMatches(change -> change.getSequence() == 3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void shouldStreamOnlyLiveChangesWithoutSince() {
+        var stream = new AnimeChangeStream(animeProperties);
+        publish(stream, 2);
+
+        StepVerifier.create(stream.changes(null))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .then(() -> publish(stream, 1))
+                .expectNextMatches(change -> change.getSequence() == 3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void shouldStreamOnlyLiveChangesWhenSinceIsAheadOfTheStream() {
+        var stream = new AnimeChangeStream(animeProperties);
+        publish(stream, 2);
+
+        StepVerifier.create(stream.changes(10L))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .then(() -> publish(stream, 1))
+                .expectNextMatches(change -> change.getSequence() == 3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void shouldDropOldestChangesOfSlowSubscribers() {
+        animeProperties.getChanges().setSubscriberBuffer(2);
+        var stream = new AnimeChangeStream(animeProperties);
+        var registry = new SimpleMeterRegistry();
+        stream.bindTo(registry);
+
+        StepVerifier.create(stream.changes(null), 0)
+                .expectSubscription()
+                .then(() -> publish(stream, 4))
+                .thenRequest(2)
+                .expectNextMatches(change -> change.getSequence() == 3)
+                .expectNextMatches(change -> change.getSequence() == 4)
+                .thenCancel()
+                .verify();
+
+        Assertions.assertEquals(2, registry.get("anime.changes.dropped").functionCounter().count());
+        Assertions.assertEquals(0, registry.get("anime.changes.subscribers").gauge().value());
+    }
+
+    @Test
+    void shouldDisconnectSlowSubscribersWhenConfigured() {
+        animeProperties.getChanges().setSubscriberBuffer(2);
+        animeProperties.getChanges().setSlowSubscriber(AnimeProperties.Changes.SlowSubscriber.DISCONNECT);
+        var stream = new AnimeChangeStream(animeProperties);
+        var registry = new SimpleMeterRegistry();
+        stream.bindTo(registry);
+
+        StepVerifier.create(stream.changes(null), 0)
+                .expectSubscription()
+                .then(() -> publish(stream, 3))
+                .thenRequest(Long.MAX_VALUE)
+                .thenConsumeWhile(change -> true)
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        Assertions.assertEquals(1, registry.get("anime.changes.disconnected").functionCounter().count());
+    }
+
+    private static void publish(AnimeChangeStream stream, int count) {
+        for (int i = 0; i < count; i++) {
+            stream.saved(AnimeCreator.createValidAnime().withVersion(0L));
+        }
+    }
+}
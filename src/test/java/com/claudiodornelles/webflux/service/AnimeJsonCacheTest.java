@@ -0,0 +1,93 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.util.AnimeCreator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+class AnimeJsonCacheTest {
+
+    private final AnimeProperties animeProperties = new AnimeProperties();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Anime anime = AnimeCreator.createValidAnime().withVersion(2L);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Function<UUID, Mono<Anime>> loader = id -> Mono.fromSupplier(() -> {
+        loads.incrementAndGet();
+        return anime;
+    });
+
+    @Test
+    void shouldEncodeOnceAndReuseTheBytes() throws Exception {
+        var cache = new AnimeJsonCache(animeProperties, objectMapper);
+
+        var first = cache.get(anime.getId(), loader).block();
+        var second = cache.get(anime.getId(), loader).block();
+
+        Assertions.assertNotNull(first);
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(2L, first.getVersion());
+        Assertions.assertArrayEquals(objectMapper.writeValueAsBytes(anime), first.getBytes());
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    void shouldEncodeAgainAfterInvalidation() {
+        var cache = new AnimeJsonCache(animeProperties, objectMapper);
+
+        cache.get(anime.getId(), loader).block();
+        cache.invalidate(anime.getId());
+        cache.get(anime.getId(), loader).block();
+
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldNotCacheMissingAnimes() {
+        var cache = new AnimeJsonCache(animeProperties, objectMapper);
+        Function<UUID, Mono<Anime>> emptyLoader = id -> Mono.fromRunnable(loads::incrementAndGet);
+
+        StepVerifier.create(cache.get(anime.getId(), emptyLoader))
+                .verifyComplete();
+        StepVerifier.create(cache.get(anime.getId(), emptyLoader))
+                .verifyComplete();
+
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldEncodeEveryTimeWhenDisabled() {
+        animeProperties.getJsonCache().setEnabled(false);
+        var cache = new AnimeJsonCache(animeProperties, objectMapper);
+
+        cache.get(anime.getId(), loader).block();
+        cache.get(anime.getId(), loader).block();
+
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldReportHitRatio() {
+        var cache = new AnimeJsonCache(animeProperties, objectMapper);
+        var registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get(anime.getId(), loader).block();
+        cache.get(anime.getId(), loader).block();
+
+        Assertions.assertEquals(0.5, registry.get("anime.json-cache.hit-ratio").gauge().value());
+        Assertions.assertNotNull(registry.find("anime.json-cache.bytes").gauge());
+    }
+}
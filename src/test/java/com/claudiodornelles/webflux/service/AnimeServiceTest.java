@@ -1,10 +1,13 @@
 package com.claudiodornelles.webflux.service;
 
+import com.claudiodornelles.webflux.config.AnimeProperties;
 import com.claudiodornelles.webflux.domain.Anime;
 import com.claudiodornelles.webflux.exception.NotFoundException;
 import com.claudiodornelles.webflux.exception.ServiceValidationException;
+import com.claudiodornelles.webflux.exception.VersionConflictException;
 import com.claudiodornelles.webflux.repository.AnimeRepository;
 import com.claudiodornelles.webflux.util.AnimeCreator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -12,6 +15,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import reactor.blockhound.BlockHound;
 import reactor.blockhound.BlockingOperationError;
@@ -20,6 +24,8 @@ import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
+import javax.validation.Validation;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.FutureTask;
@@ -34,6 +40,30 @@ class AnimeServiceTest {
     @Mock
     private AnimeRepository repositoryMock;
 
+    @Spy
+    private AnimeProperties animeProperties = new AnimeProperties();
+
+    @Spy
+    private AnimeCache animeCache = new AnimeCache(new AnimeProperties());
+
+    @Spy
+    private AnimeJsonCache animeJsonCache = new AnimeJsonCache(new AnimeProperties(), new ObjectMapper());
+
+    @Mock
+    private AnimeBatchWriter batchWriterMock;
+
+    @Mock
+    private AnimeBatchLoader batchLoaderMock;
+
+    @Spy
+    private EntityValidator entityValidator = new EntityValidator(Validation.buildDefaultValidatorFactory().getValidator());
+
+    @Mock
+    private AnimeWriteBehindBuffer writeBehindBufferMock;
+
+    @Spy
+    private AnimeChangeStream animeChangeStream = new AnimeChangeStream(new AnimeProperties());
+
     private final Anime anime = AnimeCreator.createValidAnime();
 
     @BeforeAll
@@ -60,22 +90,116 @@ class AnimeServiceTest {
     }
 
     @Test
-    void shouldFindAll() {
-        Mockito.when(repositoryMock.findAll())
+    void shouldFindFirstPage() {
+        Mockito.when(repositoryMock.findPage(21))
+                .thenReturn(Flux.just(anime));
+
+        StepVerifier.create(service.findPage(null, null))
+                .expectSubscription()
+                .expectNextMatches(page -> page.getContent().equals(List.of(anime)) && page.getNext() == null)
+                .verifyComplete();
+
+        Mockito.verify(repositoryMock, Mockito.times(1))
+                .findPage(21);
+    }
+
+    @Test
+    void shouldFindPageAfterCursorAndReturnNextCursor() {
+        var secondAnime = anime.withId(UUID.randomUUID());
+
+        Mockito.when(repositoryMock.findPageAfter(AnimeCreator.ANIME_ID_1, 2))
+                .thenReturn(Flux.just(anime, secondAnime));
+
+        StepVerifier.create(service.findPage(AnimeCreator.ANIME_ID_1, 1))
+                .expectSubscription()
+                .expectNextMatches(page -> page.getContent().equals(List.of(anime))
+                        && page.getNext().equals(anime.getId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldCapPageSizeToMaxLimit() {
+        Mockito.when(repositoryMock.findPage(101))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(service.findPage(null, 10_000))
+                .expectSubscription()
+                .expectNextCount(1)
+                .verifyComplete();
+
+        Mockito.verify(repositoryMock, Mockito.times(1))
+                .findPage(101);
+    }
+
+    @Test
+    void shouldThrowExceptionWhenLimitIsNotPositive() {
+        var exception = Assertions.assertThrows(ServiceValidationException.class, () -> service.findPage(null, 0));
+        Assertions.assertEquals("limit should be greater than zero", exception.getMessage());
+    }
+
+    @Test
+    void shouldStreamAllWithConfiguredFetchSize() {
+        Mockito.when(repositoryMock.streamAll(AnimeCreator.ANIME_ID_1, 256))
                 .thenReturn(Flux.just(anime));
 
-        StepVerifier.create(service.findAll())
+        StepVerifier.create(service.streamAll(AnimeCreator.ANIME_ID_1))
                 .expectSubscription()
                 .expectNext(anime)
                 .verifyComplete();
 
         Mockito.verify(repositoryMock, Mockito.times(1))
-                .findAll();
+                .streamAll(AnimeCreator.ANIME_ID_1, 256);
+    }
+
+    @Test
+    void shouldSearchByPrefixBeforeFallingBackToSimilarity() {
+        var similarAnime = anime.withId(UUID.randomUUID()).withName("Tensura Nikki");
+
+        Mockito.when(repositoryMock.searchByNamePrefix("tensei", "tensej", 2))
+                .thenReturn(Flux.just(anime));
+        Mockito.when(repositoryMock.searchByNameSimilarity("tensei", 2))
+                .thenReturn(Flux.just(anime, similarAnime));
+
+        StepVerifier.create(service.search(" Tensei ", 2))
+                .expectSubscription()
+                .expectNext(anime, similarAnime)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotQuerySimilarityWhenPrefixFillsTheLimit() {
+        Mockito.when(repositoryMock.searchByNamePrefix("tensei", "tensej", 1))
+                .thenReturn(Flux.just(anime));
+        Mockito.when(repositoryMock.searchByNameSimilarity("tensei", 1))
+                .thenReturn(Flux.error(new IllegalStateException("should not be subscribed")));
+
+        StepVerifier.create(service.search("tensei", 1))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldSearchWildcardCharactersLiterally() {
+        Mockito.when(repositoryMock.searchByNamePrefix("100%_", "100%`", 20))
+                .thenReturn(Flux.empty());
+        Mockito.when(repositoryMock.searchByNameSimilarity("100%_", 20))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(service.search("100%_", null))
+                .expectSubscription()
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldThrowExceptionWhenSearchQueryIsBlank() {
+        var exception = Assertions.assertThrows(ServiceValidationException.class, () -> service.search(" ", null));
+        Assertions.assertEquals("q should not be empty", exception.getMessage());
     }
 
     @Test
     void shouldFindById() {
-        Mockito.when(repositoryMock.findById(Mockito.any(UUID.class)))
+        Mockito.when(batchLoaderMock.load(Mockito.any(UUID.class)))
                 .thenReturn(Mono.just(anime));
 
         StepVerifier.create(service.findById(UUID.randomUUID()))
@@ -83,15 +207,45 @@ class AnimeServiceTest {
                 .expectNext(anime)
                 .verifyComplete();
 
-        Mockito.verify(repositoryMock, Mockito.times(1))
-                .findById(Mockito.any(UUID.class));
+        Mockito.verify(batchLoaderMock, Mockito.times(1))
+                .load(Mockito.any(UUID.class));
+    }
+
+    @Test
+    void shouldServeRepeatedFindByIdFromCache() {
+        Mockito.when(batchLoaderMock.load(AnimeCreator.ANIME_ID_1))
+                .thenReturn(Mono.just(anime));
+
+        StepVerifier.create(service.findById(AnimeCreator.ANIME_ID_1).then(service.findById(AnimeCreator.ANIME_ID_1)))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        Mockito.verify(batchLoaderMock, Mockito.times(1))
+                .load(AnimeCreator.ANIME_ID_1);
+    }
+
+    @Test
+    void shouldNotCacheMissingAnime() {
+        Mockito.when(batchLoaderMock.load(AnimeCreator.ANIME_ID_1))
+                .thenReturn(Mono.empty(), Mono.just(anime));
+
+        StepVerifier.create(service.findById(AnimeCreator.ANIME_ID_1))
+                .expectSubscription()
+                .expectError(NotFoundException.class)
+                .verify();
+
+        StepVerifier.create(service.findById(AnimeCreator.ANIME_ID_1))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
     }
 
     @Test
     void shouldFailFindByIdWhenAnimeDoesNotExist() {
         var randomId = UUID.randomUUID();
 
-        Mockito.when(repositoryMock.findById(Mockito.any(UUID.class)))
+        Mockito.when(batchLoaderMock.load(Mockito.any(UUID.class)))
                 .thenReturn(Mono.empty());
 
         StepVerifier.create(service.findById(randomId))
@@ -101,6 +255,36 @@ class AnimeServiceTest {
                 .verify();
     }
 
+    @Test
+    void shouldFindAllByIdKeepingRequestOrderAndSkippingMissingAnimes() {
+        var secondAnime = anime.withId(UUID.randomUUID());
+        var missingId = UUID.randomUUID();
+
+        Mockito.when(batchLoaderMock.load(anime.getId()))
+                .thenReturn(Mono.just(anime));
+        Mockito.when(batchLoaderMock.load(secondAnime.getId()))
+                .thenReturn(Mono.just(secondAnime));
+        Mockito.when(batchLoaderMock.load(missingId))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(service.findAllById(List.of(secondAnime.getId(), missingId, anime.getId(), secondAnime.getId())))
+                .expectSubscription()
+                .expectNext(secondAnime, anime)
+                .verifyComplete();
+
+        Mockito.verify(batchLoaderMock, Mockito.times(1))
+                .load(secondAnime.getId());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenFindingTooManyIds() {
+        var ids = Collections.nCopies(101, AnimeCreator.ANIME_ID_1);
+
+        var exception = Assertions.assertThrows(ServiceValidationException.class, () -> service.findAllById(ids));
+
+        Assertions.assertEquals("cannot find more than 100 animes at once", exception.getMessage());
+    }
+
     @Test
     void shouldThrowExceptionWhenTryingToFindByANullId() {
         var exception = Assertions.assertThrows(ServiceValidationException.class, () -> service.findById(null));
@@ -123,11 +307,31 @@ class AnimeServiceTest {
                 .save(animeToBeSaved);
     }
 
+    @Test
+    void shouldSaveNewAnimeThroughWriteBehindBufferWhenEnabled() {
+        var animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+
+        Mockito.when(writeBehindBufferMock.isEnabled())
+                .thenReturn(true);
+        Mockito.when(writeBehindBufferMock.save(Mockito.eq(animeToBeSaved), Mockito.any()))
+                .thenReturn(Mono.just(anime));
+
+        StepVerifier.create(service.save(animeToBeSaved))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        Mockito.verify(repositoryMock, Mockito.never())
+                .save(Mockito.any(Anime.class));
+        Mockito.verify(animeChangeStream, Mockito.never())
+                .saved(Mockito.any(Anime.class));
+    }
+
     @Test
     void shouldSaveAllAnime() {
         var animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
 
-        Mockito.when(repositoryMock.saveAll(List.of(animeToBeSaved, animeToBeSaved)))
+        Mockito.when(batchWriterMock.write(List.of(animeToBeSaved, animeToBeSaved)))
                 .thenReturn(Flux.just(animeToBeSaved, animeToBeSaved));
 
         StepVerifier.create(service.saveAll(List.of(animeToBeSaved, animeToBeSaved)))
@@ -135,8 +339,8 @@ class AnimeServiceTest {
                 .expectNext(animeToBeSaved, animeToBeSaved)
                 .verifyComplete();
 
-        Mockito.verify(repositoryMock, Mockito.times(1))
-                .saveAll(List.of(animeToBeSaved, animeToBeSaved));
+        Mockito.verify(batchWriterMock, Mockito.times(1))
+                .write(List.of(animeToBeSaved, animeToBeSaved));
     }
 
     @Test
@@ -148,31 +352,61 @@ class AnimeServiceTest {
 
         Assertions.assertEquals("name cannot be empty", exception.getMessage());
 
-        Mockito.verify(repositoryMock, Mockito.never())
-                .saveAll(Mockito.anyList());
+        Mockito.verify(batchWriterMock, Mockito.never())
+                .write(Mockito.anyList());
+    }
+
+    @Test
+    void shouldReportEveryViolationOfABatch() {
+        var animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+        var animesToBeSaved = List.of(animeToBeSaved.withName(""), animeToBeSaved, animeToBeSaved.withName(null));
+
+        var exception = Assertions.assertThrows(ServiceValidationException.class, () -> service.saveAll(animesToBeSaved));
+
+        Assertions.assertEquals(List.of(
+                new ServiceValidationException.Violation("[0].name", "name cannot be empty"),
+                new ServiceValidationException.Violation("[2].name", "name cannot be empty")
+        ), exception.getViolations());
+    }
+
+    @Test
+    void shouldSaveStreamValidatingEachAnime() {
+        var animeToBeSaved = AnimeCreator.createValidAnime();
+
+        Mockito.when(batchWriterMock.writeStream(Mockito.any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        StepVerifier.create(service.saveStream(Flux.just(animeToBeSaved, animeToBeSaved.withName(""))))
+                .expectSubscription()
+                .expectNext(animeToBeSaved)
+                .expectErrorMatches(error -> error instanceof ServiceValidationException
+                        && error.getMessage().equals("name cannot be empty"))
+                .verify();
     }
 
     @Test
     void shouldDeleteAnime() {
-        Mockito.when(repositoryMock.findById(AnimeCreator.ANIME_ID_1))
-                .thenReturn(Mono.just(AnimeCreator.createValidAnime()));
-        Mockito.when(repositoryMock.delete(Mockito.any(Anime.class)))
-                .thenReturn(Mono.empty());
+        Mockito.when(repositoryMock.deleteById(AnimeCreator.ANIME_ID_1))
+                .thenReturn(Mono.just(1));
 
         StepVerifier.create(service.delete(AnimeCreator.ANIME_ID_1))
                 .expectSubscription()
                 .verifyComplete();
 
         Mockito.verify(repositoryMock, Mockito.times(1))
-                .findById(AnimeCreator.ANIME_ID_1);
-        Mockito.verify(repositoryMock, Mockito.times(1))
-                .delete(Mockito.any(Anime.class));
+                .deleteById(AnimeCreator.ANIME_ID_1);
+        Mockito.verify(batchLoaderMock, Mockito.never())
+                .load(Mockito.any(UUID.class));
+        Mockito.verify(animeCache, Mockito.times(1))
+                .invalidate(AnimeCreator.ANIME_ID_1);
+        Mockito.verify(animeChangeStream, Mockito.times(1))
+                .deleted(AnimeCreator.ANIME_ID_1);
     }
 
     @Test
     void shouldFailDeleteWhenAnimeDoesNotExist() {
-        Mockito.when(repositoryMock.findById(AnimeCreator.ANIME_ID_1))
-                .thenReturn(Mono.empty());
+        Mockito.when(repositoryMock.deleteById(AnimeCreator.ANIME_ID_1))
+                .thenReturn(Mono.just(0));
 
         StepVerifier.create(service.delete(AnimeCreator.ANIME_ID_1))
                 .expectSubscription()
@@ -181,33 +415,84 @@ class AnimeServiceTest {
                 .verify();
 
         Mockito.verify(repositoryMock, Mockito.times(1))
-                .findById(AnimeCreator.ANIME_ID_1);
-        Mockito.verify(repositoryMock, Mockito.never())
-                .delete(Mockito.any(Anime.class));
+                .deleteById(AnimeCreator.ANIME_ID_1);
+        Mockito.verify(animeChangeStream, Mockito.never())
+                .deleted(Mockito.any(UUID.class));
     }
 
     @Test
     void shouldUpdateAnime() {
         var validUpdatedAnime = AnimeCreator.createValidUpdatedAnime();
 
-        Mockito.when(repositoryMock.findById(AnimeCreator.ANIME_ID_1))
-                .thenReturn(Mono.just(validUpdatedAnime));
-        Mockito.when(repositoryMock.save(validUpdatedAnime))
-                .thenReturn(Mono.just(validUpdatedAnime));
+        Mockito.when(repositoryMock.updateById(AnimeCreator.ANIME_ID_1, validUpdatedAnime.getName()))
+                .thenReturn(Mono.just(4L));
 
         StepVerifier.create(service.update(validUpdatedAnime))
                 .expectSubscription()
                 .verifyComplete();
 
         Mockito.verify(repositoryMock, Mockito.times(1))
-                .findById(AnimeCreator.ANIME_ID_1);
-        Mockito.verify(repositoryMock, Mockito.times(1))
-                .save(validUpdatedAnime);
+                .updateById(AnimeCreator.ANIME_ID_1, validUpdatedAnime.getName());
+        Mockito.verify(batchLoaderMock, Mockito.never())
+                .load(Mockito.any(UUID.class));
+        Mockito.verify(animeCache, Mockito.times(1))
+                .invalidate(AnimeCreator.ANIME_ID_1);
+        Mockito.verify(animeChangeStream, Mockito.times(1))
+                .updated(validUpdatedAnime.withVersion(4L));
+    }
+
+    @Test
+    void shouldUpdateAnimeOnlyWhenVersionMatches() {
+        var validUpdatedAnime = AnimeCreator.createValidUpdatedAnime().withVersion(2L);
+
+        Mockito.when(repositoryMock.updateByIdAndVersion(AnimeCreator.ANIME_ID_1, 2L, validUpdatedAnime.getName()))
+                .thenReturn(Mono.just(3L));
+
+        StepVerifier.create(service.update(validUpdatedAnime))
+                .expectSubscription()
+                .verifyComplete();
+
+        Mockito.verify(repositoryMock, Mockito.never())
+                .updateById(Mockito.any(UUID.class), Mockito.anyString());
+    }
+
+    @Test
+    void shouldFailUpdateWhenVersionDoesNotMatch() {
+        var validUpdatedAnime = AnimeCreator.createValidUpdatedAnime().withVersion(2L);
+
+        Mockito.when(repositoryMock.updateByIdAndVersion(AnimeCreator.ANIME_ID_1, 2L, validUpdatedAnime.getName()))
+                .thenReturn(Mono.empty());
+        Mockito.when(repositoryMock.findById(AnimeCreator.ANIME_ID_1))
+                .thenReturn(Mono.just(anime.withVersion(3L)));
+
+        StepVerifier.create(service.update(validUpdatedAnime))
+                .expectSubscription()
+                .expectErrorMatches(error -> error instanceof VersionConflictException
+                        && error.getMessage().equals("anime " + AnimeCreator.ANIME_ID_1 + " is at version 3, not 2"))
+                .verify();
+
+        Mockito.verify(animeCache, Mockito.times(1))
+                .invalidate(AnimeCreator.ANIME_ID_1);
+    }
+
+    @Test
+    void shouldFailVersionedUpdateWhenAnimeDoesNotExist() {
+        var validUpdatedAnime = AnimeCreator.createValidUpdatedAnime().withVersion(2L);
+
+        Mockito.when(repositoryMock.updateByIdAndVersion(AnimeCreator.ANIME_ID_1, 2L, validUpdatedAnime.getName()))
+                .thenReturn(Mono.empty());
+        Mockito.when(repositoryMock.findById(AnimeCreator.ANIME_ID_1))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(service.update(validUpdatedAnime))
+                .expectSubscription()
+                .expectError(NotFoundException.class)
+                .verify();
     }
 
     @Test
     void shouldFailUpdateWhenAnimeDoesNotExist() {
-        Mockito.when(repositoryMock.findById(Mockito.any(UUID.class)))
+        Mockito.when(repositoryMock.updateById(Mockito.any(UUID.class), Mockito.anyString()))
                 .thenReturn(Mono.empty());
 
         StepVerifier.create(service.update(AnimeCreator.createValidUpdatedAnime()))
@@ -217,8 +502,17 @@ class AnimeServiceTest {
                 .verify();
 
         Mockito.verify(repositoryMock, Mockito.times(1))
-                .findById(Mockito.any(UUID.class));
+                .updateById(Mockito.any(UUID.class), Mockito.anyString());
+    }
+
+    @Test
+    void shouldFailUpdateWhenAnimeHasEmptyName() {
+        var anime = AnimeCreator.createValidUpdatedAnime().withName("");
+
+        var exception = Assertions.assertThrows(ServiceValidationException.class, () -> service.update(anime));
+
+        Assertions.assertEquals("name cannot be empty", exception.getMessage());
         Mockito.verify(repositoryMock, Mockito.never())
-                .save(Mockito.any(Anime.class));
+                .updateById(Mockito.any(UUID.class), Mockito.anyString());
     }
 }
\ No newline at end of file
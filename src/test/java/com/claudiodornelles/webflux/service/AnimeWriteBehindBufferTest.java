@@ -0,0 +1,147 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.config.AnimeProperties;
+import com.claudiodornelles.webflux.domain.Anime;
+import com.claudiodornelles.webflux.domain.TimeOrderedIdGenerator;
+import com.claudiodornelles.webflux.exception.ServiceUnavailableException;
+import com.claudiodornelles.webflux.util.AnimeCreator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+class AnimeWriteBehindBufferTest {
+
+    private static final Consumer<Anime> IGNORE_COMMIT = anime -> {
+    };
+
+    private final AnimeBatchWriter batchWriterMock = Mockito.mock(AnimeBatchWriter.class);
+
+    private final AnimeProperties animeProperties = new AnimeProperties();
+
+    private AnimeWriteBehindBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        var writeBehind = animeProperties.getWriteBehind();
+        writeBehind.setEnabled(true);
+        writeBehind.setFlushInterval(Duration.ofMinutes(1));
+        writeBehind.setMaxEnqueueWait(Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() {
+        buffer.destroy();
+    }
+
+    @Test
+    void shouldAcknowledgeDurableSavesAfterTheirBatchIsInserted() {
+        animeProperties.getWriteBehind().setMaxBatchSize(2);
+        var inserted = Sinks.empty();
+        Mockito.when(batchWriterMock.insert(Mockito.anyList()))
+                .thenAnswer(invocation -> inserted.asMono().thenMany(Flux.fromIterable(invocation.getArgument(0))));
+        buffer = newBuffer();
+
+        var first = buffer.save(AnimeCreator.createAnimeToBeSaved(), IGNORE_COMMIT).cache();
+        first.subscribe();
+
+        StepVerifier.create(buffer.save(AnimeCreator.createAnimeToBeSaved(), IGNORE_COMMIT))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .then(inserted::tryEmitEmpty)
+                .expectNextMatches(anime -> anime.getId() != null && anime.getVersion() == 0L)
+                .verifyComplete();
+        StepVerifier.create(first)
+                .expectNextMatches(anime -> anime.getId() != null)
+                .verifyComplete();
+
+        Mockito.verify(batchWriterMock, Mockito.times(1))
+                .insert(Mockito.argThat(animes -> animes.size() == 2));
+    }
+
+    @Test
+    void shouldAcknowledgeEnqueuedSavesBeforeTheirBatchIsInserted() {
+        animeProperties.getWriteBehind().setAck(AnimeProperties.WriteBehind.Ack.ENQUEUE);
+        Mockito.when(batchWriterMock.insert(Mockito.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        buffer = newBuffer();
+        var committed = new CopyOnWriteArrayList<Anime>();
+
+        StepVerifier.create(buffer.save(AnimeCreator.createAnimeToBeSaved(), committed::add))
+                .expectNextMatches(anime -> anime.getId() != null)
+                .verifyComplete();
+        Mockito.verifyNoInteractions(batchWriterMock);
+        Assertions.assertTrue(committed.isEmpty());
+
+        buffer.destroy();
+
+        Mockito.verify(batchWriterMock, Mockito.times(1))
+                .insert(Mockito.argThat(animes -> animes.size() == 1));
+        Assertions.assertEquals(1, committed.size());
+    }
+
+    @Test
+    void shouldNotReportCommitOfAFailedBatch() {
+        animeProperties.getWriteBehind().setAck(AnimeProperties.WriteBehind.Ack.ENQUEUE);
+        Mockito.when(batchWriterMock.insert(Mockito.anyList()))
+                .thenReturn(Flux.error(new IllegalStateException("insert failed")));
+        buffer = newBuffer();
+        var committed = new CopyOnWriteArrayList<Anime>();
+
+        StepVerifier.create(buffer.save(AnimeCreator.createAnimeToBeSaved(), committed::add))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        buffer.destroy();
+
+        Assertions.assertTrue(committed.isEmpty());
+    }
+
+    @Test
+    void shouldMakeCallersWaitForSpaceWhenTheBufferIsFull() {
+        animeProperties.getWriteBehind().setAck(AnimeProperties.WriteBehind.Ack.ENQUEUE);
+        animeProperties.getWriteBehind().setCapacity(1);
+        var inserted = Sinks.empty();
+        Mockito.when(batchWriterMock.insert(Mockito.anyList()))
+                .thenAnswer(invocation -> inserted.asMono().thenMany(Flux.<Anime>fromIterable(invocation.getArgument(0))))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        buffer = newBuffer();
+
+        StepVerifier.create(buffer.save(AnimeCreator.createAnimeToBeSaved(), IGNORE_COMMIT))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        StepVerifier.create(buffer.save(AnimeCreator.createAnimeToBeSaved(), IGNORE_COMMIT))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .then(inserted::tryEmitEmpty)
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldFailWithServiceUnavailableWhenTheBufferStaysFull() {
+        animeProperties.getWriteBehind().setCapacity(1);
+        Mockito.when(batchWriterMock.insert(Mockito.anyList()))
+                .thenReturn(Flux.never());
+        buffer = newBuffer();
+
+        buffer.save(AnimeCreator.createAnimeToBeSaved(), IGNORE_COMMIT).subscribe();
+
+        StepVerifier.create(buffer.save(AnimeCreator.createAnimeToBeSaved(), IGNORE_COMMIT))
+                .expectError(ServiceUnavailableException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private AnimeWriteBehindBuffer newBuffer() {
+        return new AnimeWriteBehindBuffer(batchWriterMock, new TimeOrderedIdGenerator(), animeProperties);
+    }
+}
@@ -0,0 +1,63 @@
+package com.claudiodornelles.webflux.service;
+
+import com.claudiodornelles.webflux.exception.ServiceValidationException;
+import com.claudiodornelles.webflux.util.AnimeCreator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+class EntityValidatorTest {
+
+    private final Validator validator = Mockito.spy(Validation.buildDefaultValidatorFactory().getValidator());
+
+    private final EntityValidator entityValidator = new EntityValidator(validator);
+
+    @Test
+    void shouldReturnValidEntity() {
+        var anime = AnimeCreator.createValidAnime();
+
+        Assertions.assertSame(anime, entityValidator.validate(anime));
+    }
+
+    @Test
+    void shouldThrowWithViolationsOfInvalidEntity() {
+        var exception = Assertions.assertThrows(ServiceValidationException.class,
+                () -> entityValidator.validate(AnimeCreator.createAnimeWithEmptyName()));
+
+        Assertions.assertEquals("name cannot be empty", exception.getMessage());
+        Assertions.assertEquals(List.of(new ServiceValidationException.Violation("name", "name cannot be empty")),
+                exception.getViolations());
+    }
+
+    @Test
+    void shouldCollectViolationsOfEveryInvalidEntity() {
+        var animes = List.of(AnimeCreator.createAnimeWithEmptyName(), AnimeCreator.createValidAnime(),
+                AnimeCreator.createAnimeWithEmptyName());
+
+        var exception = Assertions.assertThrows(ServiceValidationException.class,
+                () -> entityValidator.validateAll(animes));
+
+        Assertions.assertEquals(List.of(
+                new ServiceValidationException.Violation("[0].name", "name cannot be empty"),
+                new ServiceValidationException.Violation("[2].name", "name cannot be empty")
+        ), exception.getViolations());
+    }
+
+    @Test
+    void shouldSkipClassesWithoutConstraints() {
+        entityValidator.validate("not constrained");
+        entityValidator.validate("still not constrained");
+
+        Mockito.verify(validator, Mockito.times(1))
+                .getConstraintsForClass(String.class);
+        Mockito.verify(validator, Mockito.never())
+                .validate(Mockito.any());
+    }
+}